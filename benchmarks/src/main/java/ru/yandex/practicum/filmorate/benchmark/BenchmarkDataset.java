@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Класс набора данных бенчмарка: size пользователей и size фильмов, у каждого фильма рейтинг
+ * и один-два жанра, каждый пользователь ставит лайки нескольким фильмам и добавляет в друзья
+ * нескольких пользователей. Фильмы и друзья выбираются по распределению Ципфа с теми же показателями,
+ * что и по умолчанию в {@link DatasetGenerator}. Данные создаются через методы хранилищ, поэтому одинаковы
+ * для хранилищ в базе данных и в памяти, а генератор со стартовым значением делает их воспроизводимыми
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+public class BenchmarkDataset {
+    /**
+     * Поле стартовое значение генератора случайных чисел
+     */
+    public static final long SEED = 42;
+    /**
+     * Поле количество лайков одного пользователя
+     */
+    public static final int LIKES_PER_USER = 5;
+    /**
+     * Поле количество друзей, которых добавляет один пользователь
+     */
+    public static final int FRIENDS_PER_USER = 10;
+    /**
+     * Поле показатель степени распределения популярности фильмов
+     */
+    public static final double FILM_EXPONENT = 1.0;
+    /**
+     * Поле показатель степени распределения популярности пользователей
+     */
+    public static final double USER_EXPONENT = 0.8;
+    private static final int MPA_COUNT = 5;
+    private static final int GENRE_COUNT = 6;
+
+    private final long[] filmIds;
+    private final long[] userIds;
+
+    private BenchmarkDataset(long[] filmIds, long[] userIds) {
+        this.filmIds = filmIds;
+        this.userIds = userIds;
+    }
+
+    /**
+     * Метод заполнения хранилищ набором данных
+     *
+     * @param storages хранилища бенчмарка
+     * @param size     количество пользователей и фильмов
+     * @return идентификаторы созданных фильмов и пользователей
+     */
+    public static BenchmarkDataset fill(BenchmarkStorages storages, int size) {
+        Random random = new Random(SEED);
+        UserStorage userStorage = storages.getUserStorage();
+        FilmStorage filmStorage = storages.getFilmStorage();
+
+        List<User> users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(newUser(i));
+        }
+        long[] userIds = userStorage.createUsers(users).stream().mapToLong(User::getId).toArray();
+
+        List<Film> films = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            films.add(newFilm(i, random));
+        }
+        long[] filmIds = filmStorage.createFilms(films).stream().mapToLong(Film::getId).toArray();
+        if (storages.isDatabase()) {
+            // Хранилище фильмов в базе данных сохраняет жанры отдельно, как это делает сервис фильмов
+            storages.getGenreStorage().addGenresToFilms(films);
+        }
+
+        ZipfDistribution filmPopularity = new ZipfDistribution(size, FILM_EXPONENT);
+        ZipfDistribution userPopularity = new ZipfDistribution(size, USER_EXPONENT);
+        for (long userId : userIds) {
+            // Ранги популярности совпадают с порядком создания, повторные лайки и запросы дружбы пропускаются
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                filmStorage.addLikeToFilm(filmIds[filmPopularity.sample(random) - 1], userId);
+            }
+            for (int i = 0; i < FRIENDS_PER_USER; i++) {
+                long friendId = userIds[userPopularity.sample(random) - 1];
+                if (friendId != userId) {
+                    userStorage.addToFriends(userId, friendId);
+                }
+            }
+        }
+        return new BenchmarkDataset(filmIds, userIds);
+    }
+
+    /**
+     * Метод создания пользователя с номером number
+     */
+    public static User newUser(int number) {
+        return new User("user" + number + "@mail.ru", "user" + number, "Пользователь " + number,
+                LocalDate.of(1970, 1, 1).plusDays(number % 15000));
+    }
+
+    /**
+     * Метод создания фильма с номером number со случайными рейтингом и жанрами
+     */
+    public static Film newFilm(int number, Random random) {
+        Mpa mpa = new Mpa();
+        mpa.setId(1L + random.nextInt(MPA_COUNT));
+        Film film = new Film("Фильм " + number, "Описание фильма " + number,
+                LocalDate.of(1950, 1, 1).plusDays(number % 25000), 60 + random.nextInt(120), mpa);
+        Set<Genre> genres = new HashSet<>();
+        int genreCount = 1 + random.nextInt(2);
+        for (int i = 0; i < genreCount; i++) {
+            genres.add(new Genre(1L + random.nextInt(GENRE_COUNT), null));
+        }
+        film.setGenres(genres);
+        return film;
+    }
+
+    public long[] getFilmIds() {
+        return filmIds;
+    }
+
+    public long[] getUserIds() {
+        return userIds;
+    }
+
+    /**
+     * Метод получения случайного идентификатора фильма
+     */
+    public long randomFilmId(Random random) {
+        return filmIds[random.nextInt(filmIds.length)];
+    }
+
+    /**
+     * Метод получения случайного идентификатора пользователя
+     */
+    public long randomUserId(Random random) {
+        return userIds[random.nextInt(userIds.length)];
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Класс запуска бенчмарков. Принимает те же параметры командной строки, что и JMH,
+ * но если формат и файл результатов не заданы (-rf, -rff), сохраняет результаты
+ * в JSON в target/jmh-results.json, чтобы их можно было сравнивать между сборками
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+public class BenchmarkMain {
+    /**
+     * Поле файл результатов по умолчанию
+     */
+    public static final String DEFAULT_RESULT = "target/jmh-results.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (!options.getResultFormat().hasValue() && !options.getResult().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON).result(DEFAULT_RESULT);
+        }
+        new Runner(builder.build()).run();
+    }
+}
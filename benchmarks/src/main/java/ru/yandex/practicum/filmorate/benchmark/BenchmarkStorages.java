@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.metrics.SlowQueryLog;
+import ru.yandex.practicum.filmorate.metrics.SqlStatementMetrics;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDictionaryStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.migration.SchemaMigrator;
+import ru.yandex.practicum.filmorate.storage.rating.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.rating.MpaDictionaryStorage;
+import ru.yandex.practicum.filmorate.storage.rating.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+/**
+ * Класс набора хранилищ для бенчмарка. Каждый набор получает собственную базу H2 в памяти
+ * со схемой из миграций приложения: справочники жанров и рейтингов всегда читаются из нее,
+ * а фильмы и пользователи хранятся в базе (db) или в памяти (memory).
+ * Запросы к базе считаются тем же оборачиванием источника соединений, что и в приложении.
+ * Соединения берутся из пула Hikari или, как в приложении с выключенным пулом, открываются на каждый запрос
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+public class BenchmarkStorages implements AutoCloseable {
+    /**
+     * Поле вид хранилищ в базе данных
+     */
+    public static final String DB = "db";
+    /**
+     * Поле вид хранилищ в памяти
+     */
+    public static final String MEMORY = "memory";
+
+    private final String kind;
+    /**
+     * Поле источник соединений: пул Hikari или {@link DriverManagerDataSource}
+     */
+    private final DataSource dataSource;
+    /**
+     * Поле метрики SQL-запросов: все запросы бенчмарка выполняются вне HTTP-запросов
+     */
+    private final SqlStatementMetrics statementMetrics;
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final GenreStorage genreStorage;
+    private final MpaStorage mpaStorage;
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param kind - вид хранилищ фильмов и пользователей: {@link #DB} или {@link #MEMORY}
+     */
+    public BenchmarkStorages(String kind) {
+        this(kind, true);
+    }
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param kind   - вид хранилищ фильмов и пользователей: {@link #DB} или {@link #MEMORY}
+     * @param pooled - брать ли соединения из пула
+     */
+    public BenchmarkStorages(String kind, boolean pooled) {
+        this.kind = kind;
+        String url = "jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        if (pooled) {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setJdbcUrl(url);
+            pool.setUsername("sa");
+            pool.setPassword("");
+            dataSource = pool;
+        } else {
+            dataSource = new DriverManagerDataSource(url, "sa", "");
+        }
+        new SchemaMigrator(dataSource, SchemaMigrator.MIGRATIONS_LOCATION, true).migrate();
+        statementMetrics = new SqlStatementMetrics(true, new SlowQueryLog(false, 100, 1, false));
+        jdbcTemplate = new JdbcTemplate(statementMetrics.wrap(dataSource));
+        GenreDictionaryStorage genres = new GenreDictionaryStorage(new GenreDbStorage(jdbcTemplate));
+        genres.afterPropertiesSet();
+        genreStorage = genres;
+        MpaDictionaryStorage ratings = new MpaDictionaryStorage(new MpaDbStorage(jdbcTemplate));
+        ratings.afterPropertiesSet();
+        mpaStorage = ratings;
+        switch (kind) {
+            case DB:
+                filmStorage = new FilmDbStorage(jdbcTemplate);
+                userStorage = new UserDbStorage(jdbcTemplate);
+                break;
+            case MEMORY:
+                userStorage = new InMemoryUserStorage();
+                filmStorage = new InMemoryFilmStorage(userStorage);
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестный вид хранилища " + kind);
+        }
+    }
+
+    public boolean isDatabase() {
+        return DB.equals(kind);
+    }
+
+    /**
+     * Метод получения количества SQL-запросов, выполненных хранилищами набора
+     */
+    public long getStatementCount() {
+        return statementMetrics.getOtherStatements();
+    }
+
+    /**
+     * Метод получения источника соединений без подсчета запросов, например для {@link DatasetGenerator}
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public FilmStorage getFilmStorage() {
+        return filmStorage;
+    }
+
+    public UserStorage getUserStorage() {
+        return userStorage;
+    }
+
+    public GenreStorage getGenreStorage() {
+        return genreStorage;
+    }
+
+    public MpaStorage getMpaStorage() {
+        return mpaStorage;
+    }
+
+    /**
+     * Метод удаления базы данных набора и закрытия пула соединений
+     */
+    @Override
+    public void close() {
+        jdbcTemplate.execute("SHUTDOWN");
+        if (dataSource instanceof HikariDataSource) {
+            ((HikariDataSource) dataSource).close();
+        }
+    }
+}
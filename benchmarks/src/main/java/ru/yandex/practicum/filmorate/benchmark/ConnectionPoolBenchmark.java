@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmCache;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularFilmsLeaderboard;
+import ru.yandex.practicum.filmorate.validator.FilmValidator;
+import ru.yandex.practicum.filmorate.validator.PageValidator;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс нагрузочного бенчмарка пула соединений: сколько вызовов сервиса фильмов в секунду выдерживают
+ * хранилища в базе данных, когда соединения берутся из пула (pooled) и когда каждый запрос
+ * открывает новое соединение (unpooled), как в приложении с filmorate.datasource.pool.enabled=false.
+ * Вызовы выполняются в нескольких потоках без кэша фильмов, поэтому каждый getFilmById - это
+ * несколько запросов к базе, как у GET /films/{id}. Соединение с H2 в памяти открывается быстрее,
+ * чем с сетевой базой, поэтому разница здесь - нижняя оценка выигрыша от пула
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class ConnectionPoolBenchmark {
+    /**
+     * Поле соединения из пула
+     */
+    public static final String POOLED = "pooled";
+    /**
+     * Поле новое соединение на каждый запрос
+     */
+    public static final String UNPOOLED = "unpooled";
+
+    @Param({POOLED, UNPOOLED})
+    private String connections;
+    @Param({"10000"})
+    private int size;
+
+    private BenchmarkStorages storages;
+    private BenchmarkDataset dataset;
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storages = new BenchmarkStorages(BenchmarkStorages.DB, POOLED.equals(connections));
+        dataset = BenchmarkDataset.fill(storages, size);
+        PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard(storages.getFilmStorage());
+        leaderboard.afterSingletonsInstantiated();
+        filmService = new FilmService(storages.getFilmStorage(), storages.getUserStorage(), new FilmValidator(),
+                storages.getGenreStorage(), storages.getMpaStorage(), leaderboard, new FilmCache(0, 0),
+                new PageValidator());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storages.close();
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmService.getFilmById(dataset.randomFilmId(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public List<Film> findFilmsPage() {
+        return filmService.findFilms(null, PageValidator.DEFAULT_PAGE_SIZE);
+    }
+}
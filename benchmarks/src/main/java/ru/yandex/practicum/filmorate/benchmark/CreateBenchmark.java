@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс бенчмарков создания фильма и пользователя в хранилище - стоимость одной вставки.
+ * Вид new-insert повторяет прежнюю реализацию хранилищ в базе данных: {@link SimpleJdbcInsert}
+ * создается на каждый вызов и перед вставкой читает метаданные таблицы. Рядом со временем вызова
+ * выводится количество SQL-запросов
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateBenchmark {
+    /**
+     * Поле хранилища в базе данных с новым {@link SimpleJdbcInsert} на каждую вставку
+     */
+    public static final String NEW_INSERT = "new-insert";
+
+    @Param({BenchmarkStorages.DB, BenchmarkStorages.MEMORY, NEW_INSERT})
+    private String storage;
+
+    private BenchmarkStorages storages;
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+    private boolean newInsert;
+    /**
+     * Поле номер следующего пользователя: логин и почта пользователя должны быть уникальными
+     */
+    private int nextUser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        newInsert = NEW_INSERT.equals(storage);
+        storages = new BenchmarkStorages(newInsert ? BenchmarkStorages.DB : storage);
+        filmStorage = storages.getFilmStorage();
+        userStorage = storages.getUserStorage();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storages.close();
+    }
+
+    @Benchmark
+    public Film createFilm(SqlStatementCounters counters) {
+        Film film = BenchmarkDataset.newFilm(0, ThreadLocalRandom.current());
+        return counters.count(storages, () -> newInsert ? createFilmWithNewInsert(film) : filmStorage.createFilm(film));
+    }
+
+    @Benchmark
+    public User createUser(SqlStatementCounters counters) {
+        User user = BenchmarkDataset.newUser(nextUser++);
+        return counters.count(storages, () -> newInsert ? createUserWithNewInsert(user) : userStorage.createUser(user));
+    }
+
+    private Film createFilmWithNewInsert(Film film) {
+        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(storages.getJdbcTemplate())
+                .withTableName("films")
+                .usingGeneratedKeyColumns("film_id");
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("name", film.getName());
+        values.put("description", film.getDescription());
+        values.put("release_date", film.getReleaseDate());
+        values.put("duration", film.getDuration());
+        values.put("rating_id", film.getMpa().getId());
+
+        film.setId(simpleJdbcInsert.executeAndReturnKey(values).longValue());
+        return film;
+    }
+
+    private User createUserWithNewInsert(User user) {
+        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(storages.getJdbcTemplate())
+                .withTableName("users")
+                .usingGeneratedKeyColumns("user_id");
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("email", user.getEmail());
+        values.put("login", user.getLogin());
+        values.put("name", user.getName());
+        values.put("birthday", user.getBirthday());
+
+        user.setId(simpleJdbcInsert.executeAndReturnKey(values).longValue());
+        return user;
+    }
+}
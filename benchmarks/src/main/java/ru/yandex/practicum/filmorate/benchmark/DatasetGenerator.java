@@ -0,0 +1,504 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.storage.migration.SchemaMigrator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Класс генератора синтетического набора данных со степенным распределением популярности.
+ * Таблицы users, films, films_genres, films_likes и friendship заполняются напрямую пакетами JDBC.
+ * Фильм для лайка выбирается по распределению Ципфа, поэтому несколько фильмов собирают большую часть лайков;
+ * так же выбирается адресат запроса дружбы, поэтому у немногих пользователей очень много друзей.
+ * Ранги популярности перемешаны относительно идентификаторов, а одинаковые параметры
+ * и стартовое значение дают одинаковый набор данных.
+ * Запуск: java -cp benchmarks.jar ru.yandex.practicum.filmorate.benchmark.DatasetGenerator
+ * --url=jdbc:h2:file:./db/filmorate --users=1000000 --films=100000 --likes=5000000 --friendships=5000000
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Slf4j
+public class DatasetGenerator {
+    /**
+     * Поле источник соединений
+     */
+    private final DataSource dataSource;
+    /**
+     * Поле параметры генерации
+     */
+    private final Settings settings;
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param dataSource - источник соединений с базой данных с примененными миграциями
+     * @param settings   - параметры генерации
+     */
+    public DatasetGenerator(DataSource dataSource, Settings settings) {
+        this.dataSource = dataSource;
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) {
+        Settings settings = Settings.parse(args);
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setJdbcUrl(settings.url);
+            dataSource.setUsername(settings.username);
+            dataSource.setPassword(settings.password);
+            new SchemaMigrator(dataSource, SchemaMigrator.MIGRATIONS_LOCATION, true).migrate();
+            Map<String, Long> rows = new DatasetGenerator(dataSource, settings).generate();
+            log.info("Создано строк: " + rows);
+        }
+    }
+
+    /**
+     * Метод генерации набора данных. Таблицы пользователей и фильмов должны быть пустыми,
+     * если не задан параметр clean
+     *
+     * @return количество созданных строк по таблицам
+     * @throws IllegalStateException если в базе уже есть пользователи или фильмы, или запрос завершился ошибкой
+     */
+    public Map<String, Long> generate() {
+        Random random = new Random(settings.seed);
+        Map<String, Long> rows = new LinkedHashMap<>();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            if (settings.clean) {
+                clean(connection);
+            }
+            checkEmpty(connection);
+            long[] ratingIds = readIds(connection, "SELECT rating_id FROM ratings ORDER BY rating_id");
+            long[] genreIds = readIds(connection, "SELECT genre_id FROM genres ORDER BY genre_id");
+
+            rows.put("users", insertUsers(connection, random));
+            long[] filmRows = insertFilms(connection, random, ratingIds, genreIds);
+            rows.put("films", filmRows[0]);
+            rows.put("films_genres", filmRows[1]);
+            rows.put("films_likes", insertLikes(connection, random));
+            rows.put("friendship", insertFriendships(connection, random));
+            restartIdentity(connection, "users", "user_id", settings.users);
+            restartIdentity(connection, "films", "film_id", settings.films);
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось сгенерировать набор данных", e);
+        }
+        return rows;
+    }
+
+    private long insertUsers(Connection connection, Random random) throws SQLException {
+        long start = System.nanoTime();
+        String sql = "INSERT INTO users (user_id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)";
+        try (Batch batch = new Batch(connection, sql, null)) {
+            for (int id = 1; id <= settings.users; id++) {
+                PreparedStatement statement = batch.statement;
+                statement.setLong(1, id);
+                statement.setString(2, "user" + id + "@filmorate.ru");
+                statement.setString(3, "user" + id);
+                statement.setString(4, "Пользователь " + id);
+                statement.setDate(5, Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(20000))));
+                batch.add();
+            }
+            return batch.finish("users", start);
+        }
+    }
+
+    /**
+     * Метод создания фильмов и их жанров
+     *
+     * @return количество строк в films и films_genres
+     */
+    private long[] insertFilms(Connection connection, Random random, long[] ratingIds, long[] genreIds)
+            throws SQLException {
+        long start = System.nanoTime();
+        String filmSql = "INSERT INTO films (film_id, name, description, release_date, duration, rating_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+        String genreSql = "INSERT INTO films_genres (film_id, genre_id) VALUES (?, ?)";
+        int maxGenres = Math.min(settings.maxGenresPerFilm, genreIds.length);
+        Set<Long> filmGenres = new HashSet<>();
+        try (Batch films = new Batch(connection, filmSql, null);
+             Batch genres = new Batch(connection, genreSql, films)) {
+            for (int id = 1; id <= settings.films; id++) {
+                PreparedStatement statement = films.statement;
+                statement.setLong(1, id);
+                statement.setString(2, "Фильм " + id);
+                statement.setString(3, "Описание фильма " + id);
+                statement.setDate(4, Date.valueOf(LocalDate.of(1900, 1, 1).plusDays(random.nextInt(45000))));
+                statement.setInt(5, 60 + random.nextInt(120));
+                statement.setLong(6, ratingIds[random.nextInt(ratingIds.length)]);
+                films.add();
+
+                filmGenres.clear();
+                int genreCount = random.nextInt(maxGenres + 1);
+                while (filmGenres.size() < genreCount) {
+                    filmGenres.add(genreIds[random.nextInt(genreIds.length)]);
+                }
+                for (Long genreId : filmGenres) {
+                    genres.statement.setLong(1, id);
+                    genres.statement.setLong(2, genreId);
+                    genres.add();
+                }
+            }
+            return new long[]{films.finish("films", start), genres.finish("films_genres", start)};
+        }
+    }
+
+    /**
+     * Метод создания лайков: каждый пользователь ставит лайки разным фильмам, выбранным
+     * по распределению Ципфа, после чего заполняются счетчики лайков фильмов
+     *
+     * @return количество лайков
+     */
+    private long insertLikes(Connection connection, Random random) throws SQLException {
+        long start = System.nanoTime();
+        int[] filmByRank = shuffledIds(settings.films, random);
+        ZipfDistribution popularity = new ZipfDistribution(settings.films, settings.filmExponent);
+        int[] likesCount = new int[settings.films + 1];
+        Set<Integer> userLikes = new HashSet<>();
+        String sql = "INSERT INTO films_likes (film_id, user_id) VALUES (?, ?)";
+        long created;
+        try (Batch batch = new Batch(connection, sql, null)) {
+            for (int userId = 1; userId <= settings.users; userId++) {
+                int count = Math.min(share(settings.likes, settings.users, random), settings.films);
+                userLikes.clear();
+                // Попытки ограничены: при сильной асимметрии редкие фильмы выпадают слишком редко
+                for (int attempt = 0; userLikes.size() < count && attempt < count * 20; attempt++) {
+                    int filmId = filmByRank[popularity.sample(random) - 1];
+                    if (userLikes.add(filmId)) {
+                        likesCount[filmId]++;
+                        batch.statement.setLong(1, filmId);
+                        batch.statement.setLong(2, userId);
+                        batch.add();
+                    }
+                }
+            }
+            created = batch.finish("films_likes", start);
+        }
+        try (Batch batch = new Batch(connection, "UPDATE films SET likes_count = ? WHERE film_id = ?", null)) {
+            for (int filmId = 1; filmId <= settings.films; filmId++) {
+                if (likesCount[filmId] > 0) {
+                    batch.statement.setLong(1, likesCount[filmId]);
+                    batch.statement.setLong(2, filmId);
+                    batch.add();
+                }
+            }
+            batch.finish("films.likes_count", start);
+        }
+        return created;
+    }
+
+    /**
+     * Метод создания дружбы: каждый пользователь отправляет запросы пользователям, выбранным
+     * по распределению Ципфа, часть запросов подтверждена. На каждую пару пользователей
+     * приходится не больше одной строки, как при добавлении в друзья через приложение
+     *
+     * @return количество строк дружбы
+     */
+    private long insertFriendships(Connection connection, Random random) throws SQLException {
+        long start = System.nanoTime();
+        int[] userByRank = shuffledIds(settings.users, random);
+        ZipfDistribution popularity = new ZipfDistribution(settings.users, settings.userExponent);
+        LongHashSet pairs = new LongHashSet(settings.friendships);
+        String sql = "INSERT INTO friendship (user_id1, user_id2, confirmed) VALUES (?, ?, ?)";
+        try (Batch batch = new Batch(connection, sql, null)) {
+            for (int userId = 1; userId <= settings.users; userId++) {
+                int count = Math.min(share(settings.friendships, settings.users, random), settings.users - 1);
+                int created = 0;
+                for (int attempt = 0; created < count && attempt < count * 20; attempt++) {
+                    int friendId = userByRank[popularity.sample(random) - 1];
+                    if (friendId == userId
+                            || !pairs.add((long) Math.min(userId, friendId) << 32 | Math.max(userId, friendId))) {
+                        continue;
+                    }
+                    created++;
+                    batch.statement.setLong(1, userId);
+                    batch.statement.setLong(2, friendId);
+                    batch.statement.setBoolean(3, random.nextDouble() < settings.confirmedRatio);
+                    batch.add();
+                }
+            }
+            return batch.finish("friendship", start);
+        }
+    }
+
+    /**
+     * Метод удаления всех пользователей и фильмов вместе со связанными строками
+     */
+    private void clean(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : List.of("films_likes", "friendship", "films_genres", "films", "users")) {
+                statement.executeUpdate("DELETE FROM " + table);
+            }
+        }
+        connection.commit();
+    }
+
+    private void checkEmpty(Connection connection) throws SQLException {
+        for (String table : List.of("users", "films")) {
+            if (readIds(connection, "SELECT COUNT(*) FROM " + table)[0] > 0) {
+                throw new IllegalStateException("Таблица " + table + " не пуста, для очистки задайте --clean=true");
+            }
+        }
+    }
+
+    private long[] readIds(Connection connection, String sql) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Метод сдвига счетчика идентификаторов за последний созданный идентификатор,
+     * чтобы приложение продолжило нумерацию
+     */
+    private void restartIdentity(Connection connection, String table, String column, int lastId)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " RESTART WITH " + (lastId + 1));
+        }
+    }
+
+    /**
+     * Метод распределения total элементов между parts владельцами: каждый получает целую часть
+     * среднего и еще один элемент с вероятностью, равной дробной части
+     */
+    private static int share(long total, int parts, Random random) {
+        long base = total / parts;
+        return (int) base + (random.nextInt(parts) < total % parts ? 1 : 0);
+    }
+
+    /**
+     * Метод получения идентификаторов 1..n в случайном порядке - соответствия рангов популярности идентификаторам
+     */
+    private static int[] shuffledIds(int n, Random random) {
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Класс пакетной вставки: команды отправляются и фиксируются каждые batchSize строк.
+     * Пакет строк, которые ссылаются на строки другого пакета, отправляется только после него
+     */
+    private final class Batch implements AutoCloseable {
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final Batch referenced;
+        private int pending;
+        private long total;
+
+        private Batch(Connection connection, String sql, Batch referenced) throws SQLException {
+            this.connection = connection;
+            this.statement = connection.prepareStatement(sql);
+            this.referenced = referenced;
+        }
+
+        private void add() throws SQLException {
+            statement.addBatch();
+            total++;
+            if (++pending == settings.batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            if (referenced != null) {
+                referenced.flush();
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+                connection.commit();
+                pending = 0;
+            }
+        }
+
+        private long finish(String table, long start) throws SQLException {
+            flush();
+            log.info(table + ": " + total + " строк за " + (System.nanoTime() - start) / 1_000_000 + " мс");
+            return total;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            statement.close();
+        }
+    }
+
+    /**
+     * Класс множества чисел long с открытой адресацией: пары пользователей хранятся без упаковки в объекты,
+     * поэтому десятки миллионов пар занимают по 16 байт
+     */
+    private static final class LongHashSet {
+        private static final long FREE = -1;
+        private long[] keys;
+        private int size;
+
+        private LongHashSet(long expected) {
+            int capacity = Integer.highestOneBit((int) Math.min(1L << 30, Math.max(16, expected * 2)) - 1) << 1;
+            keys = new long[capacity];
+            Arrays.fill(keys, FREE);
+        }
+
+        private boolean add(long key) {
+            if (size * 2 >= keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (keys[slot] != FREE) {
+                if (keys[slot] == key) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            size++;
+            return true;
+        }
+
+        private void grow() {
+            long[] old = keys;
+            keys = new long[old.length * 2];
+            Arrays.fill(keys, FREE);
+            size = 0;
+            for (long key : old) {
+                if (key != FREE) {
+                    add(key);
+                }
+            }
+        }
+
+        private static long mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return h ^ (h >>> 32);
+        }
+    }
+
+    /**
+     * Класс параметров генерации, задаваемых в командной строке в виде --имя=значение
+     */
+    public static final class Settings {
+        private String url = "jdbc:h2:file:./db/filmorate";
+        private String username = "sa";
+        private String password = "password";
+        private int users = 1_000_000;
+        private int films = 100_000;
+        private long likes = 5_000_000;
+        private long friendships = 5_000_000;
+        private int maxGenresPerFilm = 3;
+        private double filmExponent = 1.0;
+        private double userExponent = 0.8;
+        private double confirmedRatio = 0.5;
+        private long seed = 42;
+        private int batchSize = 10_000;
+        private boolean clean;
+
+        /**
+         * Метод разбора параметров командной строки, не заданные параметры остаются по умолчанию
+         *
+         * @param args параметры вида --users=1000000
+         * @return параметры генерации
+         * @throws IllegalArgumentException если параметр неизвестен или его значение некорректно
+         */
+        public static Settings parse(String... args) {
+            Settings settings = new Settings();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (!arg.startsWith("--") || separator < 0) {
+                    throw new IllegalArgumentException("Параметр должен иметь вид --имя=значение: " + arg);
+                }
+                settings.set(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+            settings.validate();
+            return settings;
+        }
+
+        private void set(String name, String value) {
+            switch (name) {
+                case "url":
+                    url = value;
+                    break;
+                case "username":
+                    username = value;
+                    break;
+                case "password":
+                    password = value;
+                    break;
+                case "users":
+                    users = Integer.parseInt(value);
+                    break;
+                case "films":
+                    films = Integer.parseInt(value);
+                    break;
+                case "likes":
+                    likes = Long.parseLong(value);
+                    break;
+                case "friendships":
+                    friendships = Long.parseLong(value);
+                    break;
+                case "max-genres-per-film":
+                    maxGenresPerFilm = Integer.parseInt(value);
+                    break;
+                case "film-exponent":
+                    filmExponent = Double.parseDouble(value);
+                    break;
+                case "user-exponent":
+                    userExponent = Double.parseDouble(value);
+                    break;
+                case "confirmed-ratio":
+                    confirmedRatio = Double.parseDouble(value);
+                    break;
+                case "seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "batch-size":
+                    batchSize = Integer.parseInt(value);
+                    break;
+                case "clean":
+                    clean = Boolean.parseBoolean(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Неизвестный параметр " + name);
+            }
+        }
+
+        private void validate() {
+            if (users < 2 || films < 1 || likes < 0 || friendships < 0 || maxGenresPerFilm < 0 || batchSize < 1) {
+                throw new IllegalArgumentException("Нужны хотя бы два пользователя и один фильм, " +
+                        "количества не могут быть отрицательными");
+            }
+            if (filmExponent < 0 || userExponent < 0 || confirmedRatio < 0 || confirmedRatio > 1) {
+                throw new IllegalArgumentException("Показатели степени неотрицательны, доля подтвержденной " +
+                        "дружбы от 0 до 1");
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс бенчмарков хранилища фильмов: популярные фильмы, фильм по идентификатору,
+ * добавление и удаление лайка. Кроме времени вызова выводится количество SQL-запросов
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilmStorageBenchmark {
+    @Param({BenchmarkStorages.DB, BenchmarkStorages.MEMORY})
+    private String storage;
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private BenchmarkStorages storages;
+    private BenchmarkDataset dataset;
+    private FilmStorage filmStorage;
+    /**
+     * Поле пользователь без лайков: его лайк всегда добавляется и затем удаляется,
+     * поэтому измерение не меняет набор данных
+     */
+    private long likingUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storages = new BenchmarkStorages(storage);
+        dataset = BenchmarkDataset.fill(storages, size);
+        filmStorage = storages.getFilmStorage();
+        likingUserId = storages.getUserStorage().createUser(BenchmarkDataset.newUser(size)).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storages.close();
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilm(SqlStatementCounters counters) {
+        return counters.count(storages, () -> filmStorage.getPopularFilm(10));
+    }
+
+    @Benchmark
+    public Film getFilmById(SqlStatementCounters counters) {
+        long filmId = dataset.randomFilmId(ThreadLocalRandom.current());
+        return counters.count(storages, () -> filmStorage.getFilmById(filmId));
+    }
+
+    @Benchmark
+    public boolean addAndDeleteLike(SqlStatementCounters counters) {
+        long filmId = dataset.randomFilmId(ThreadLocalRandom.current());
+        return counters.count(storages, () -> {
+            filmStorage.addLikeToFilm(filmId, likingUserId);
+            return filmStorage.deleteLikeFromFilm(filmId, likingUserId);
+        });
+    }
+}
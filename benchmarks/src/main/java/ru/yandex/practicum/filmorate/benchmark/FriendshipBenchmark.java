@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.service.FilmCache;
+import ru.yandex.practicum.filmorate.service.FriendIdsCache;
+import ru.yandex.practicum.filmorate.service.PopularFilmsLeaderboard;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.validator.PageValidator;
+import ru.yandex.practicum.filmorate.validator.UserValidator;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс бенчмарков изменения дружбы через сервис пользователей - PUT и DELETE /users/{id}/friends/{friendId}.
+ * Каждый вызов выполняет переход и обратный переход, поэтому набор данных не меняется:
+ * requestAndDelete отправляет запрос в друзья и удаляет его, confirmAndUnconfirm подтверждает
+ * встречный запрос и снимает подтверждение. Рядом со временем вызова выводится количество SQL-запросов,
+ * на один переход приходится чтение состояния пары и не больше одной записи.
+ * Вид check-friendship повторяет прежнюю реализацию сервиса в базе данных: две проверки существования
+ * пользователей и отдельная проверка строки дружбы перед каждым шагом перехода
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FriendshipBenchmark {
+    /**
+     * Поле хранилища в базе данных с прежними проверками дружбы перед каждым шагом перехода
+     */
+    public static final String CHECK_FRIENDSHIP = "check-friendship";
+
+    @Param({BenchmarkStorages.DB, BenchmarkStorages.MEMORY, CHECK_FRIENDSHIP})
+    private String storage;
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private BenchmarkStorages storages;
+    private BenchmarkDataset dataset;
+    private UserService userService;
+    private JdbcTemplate jdbcTemplate;
+    private boolean checkFriendship;
+    /**
+     * Поле пользователь без друзей, который отправляет запросы в друзья
+     */
+    private long requestingUserId;
+    /**
+     * Поле пользователь, которому все пользователи набора отправили запрос в друзья
+     */
+    private long requestedUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        checkFriendship = CHECK_FRIENDSHIP.equals(storage);
+        storages = new BenchmarkStorages(checkFriendship ? BenchmarkStorages.DB : storage);
+        jdbcTemplate = storages.getJdbcTemplate();
+        dataset = BenchmarkDataset.fill(storages, size);
+        UserStorage userStorage = storages.getUserStorage();
+        requestingUserId = userStorage.createUser(BenchmarkDataset.newUser(size)).getId();
+        requestedUserId = userStorage.createUser(BenchmarkDataset.newUser(size + 1)).getId();
+        for (long userId : dataset.getUserIds()) {
+            userStorage.addToFriends(userId, requestedUserId);
+        }
+        PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard(storages.getFilmStorage());
+        leaderboard.afterSingletonsInstantiated();
+        userService = new UserService(userStorage, storages.getFilmStorage(), new UserValidator(), leaderboard,
+                new FilmCache(0, 0), new PageValidator(), new FriendIdsCache(0, 0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storages.close();
+    }
+
+    @Benchmark
+    public long requestAndDelete(SqlStatementCounters counters) {
+        long friendId = dataset.randomUserId(ThreadLocalRandom.current());
+        return counters.count(storages, () -> {
+            addToFriends(requestingUserId, friendId);
+            deleteFromFriends(requestingUserId, friendId);
+            return friendId;
+        });
+    }
+
+    @Benchmark
+    public long confirmAndUnconfirm(SqlStatementCounters counters) {
+        long friendId = dataset.randomUserId(ThreadLocalRandom.current());
+        return counters.count(storages, () -> {
+            addToFriends(requestedUserId, friendId);
+            deleteFromFriends(requestedUserId, friendId);
+            return friendId;
+        });
+    }
+
+    private void addToFriends(long idUser, long idFriend) {
+        if (!checkFriendship) {
+            userService.addToFriends(idUser, idFriend);
+            return;
+        }
+        checkUserId(idUser);
+        checkUserId(idFriend);
+        if (checkFriendship(idUser, idFriend, false)) {
+            return;
+        }
+        if (!checkFriendship(idUser, idFriend, false) && !checkFriendship(idFriend, idUser, false)) {
+            jdbcTemplate.update("INSERT INTO friendship (user_id1, user_id2, confirmed) VALUES(?, ?, ?)",
+                    idUser, idFriend, false);
+        }
+        if (checkFriendship(idFriend, idUser, false)) {
+            updateConfirmed(idFriend, idUser, true);
+        }
+    }
+
+    private void deleteFromFriends(long idUser, long idFriend) {
+        if (!checkFriendship) {
+            userService.deleteFromFriends(idUser, idFriend);
+            return;
+        }
+        checkUserId(idUser);
+        checkUserId(idFriend);
+        // Прежний код проверял запрос отдельно, только чтобы записать предупреждение в лог
+        checkFriendship(idUser, idFriend, false);
+        if (checkFriendship(idUser, idFriend, false)) {
+            jdbcTemplate.update("DELETE FROM friendship WHERE user_id1 = ? AND user_id2 = ?", idUser, idFriend);
+        }
+        if (checkFriendship(idUser, idFriend, true)) {
+            updateConfirmed(idUser, idFriend, false);
+        }
+        if (checkFriendship(idFriend, idUser, true)) {
+            updateConfirmed(idFriend, idUser, false);
+        }
+    }
+
+    private void checkUserId(long id) {
+        if (jdbcTemplate.queryForList("SELECT * FROM users WHERE user_id = ?", id).isEmpty()) {
+            throw new NotFoundException("Пользователь с идентификатором " + id + " не найден");
+        }
+    }
+
+    private boolean checkFriendship(long userId, long friendId, boolean confirmed) {
+        return jdbcTemplate.queryForRowSet("SELECT * FROM friendship " +
+                "WHERE user_id1 = ? AND user_id2 = ? AND  confirmed = ?", userId, friendId, confirmed).next();
+    }
+
+    private void updateConfirmed(long userId, long friendId, boolean confirmed) {
+        jdbcTemplate.update("UPDATE friendship SET user_id1 = ?, user_id2 = ?, confirmed = ? " +
+                "WHERE user_id1 = ? AND user_id2 = ?", userId, friendId, confirmed, userId, friendId);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.metrics.HttpRequestMetrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс бенчмарка записи метрик HTTP-запроса: стоимость, которую метрики добавляют к каждому запросу,
+ * при записи из одного и из нескольких потоков в одни и те же маршруты
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpRequestMetricsBenchmark {
+    private static final String[] ROUTES = {"/films/{id}", "/films/{id}/like/{userId}", "/films/popular",
+            "/users/{id}/friends/common/{otherId}"};
+
+    private final HttpRequestMetrics metrics = new HttpRequestMetrics();
+
+    @Benchmark
+    public void record() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        metrics.record("GET", ROUTES[random.nextInt(ROUTES.length)], 200, random.nextLong(10_000, 10_000_000));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordConcurrently() {
+        record();
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс бенчмарков популярных фильмов на большом количестве лайков в базе данных.
+ * Набор создается {@link DatasetGenerator}: лайки распределены по фильмам по закону Ципфа,
+ * счетчики лайков фильмов заполнены. getPopularFilm читает первые фильмы по индексу счетчика,
+ * а getPopularFilmByJoin выполняет прежний запрос с группировкой всех лайков для сравнения.
+ * База хранится в памяти, поэтому для 10 миллионов лайков форку выделяется больше памяти
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class PopularFilmsBenchmark {
+    /**
+     * Поле количество фильмов набора
+     */
+    public static final int FILMS = 100_000;
+    /**
+     * Поле среднее количество лайков одного пользователя
+     */
+    public static final int LIKES_PER_USER = 50;
+    /**
+     * Поле количество популярных фильмов в запросе
+     */
+    public static final int COUNT = 10;
+    /**
+     * Поле прежний запрос популярных фильмов, который группирует всю таблицу лайков
+     */
+    private static final String POPULAR_BY_JOIN_SQL = "SELECT f.film_id " +
+            "FROM films AS f " +
+            "LEFT JOIN films_likes AS fl ON f.film_id = fl.film_id " +
+            "GROUP BY f.film_id " +
+            "ORDER BY COUNT(fl.user_id) DESC LIMIT ?";
+
+    @Param({"1000000", "10000000"})
+    private long likes;
+
+    private BenchmarkStorages storages;
+    private FilmStorage filmStorage;
+    /**
+     * Поле пользователь без лайков: его лайк всегда добавляется и затем удаляется
+     */
+    private long likingUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storages = new BenchmarkStorages(BenchmarkStorages.DB);
+        long users = Math.max(2, likes / LIKES_PER_USER);
+        new DatasetGenerator(storages.getDataSource(), DatasetGenerator.Settings.parse(
+                "--users=" + users, "--films=" + FILMS, "--likes=" + likes, "--friendships=0")).generate();
+        filmStorage = storages.getFilmStorage();
+        likingUserId = storages.getUserStorage().createUser(BenchmarkDataset.newUser(0)).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storages.close();
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilm() {
+        return filmStorage.getPopularFilm(COUNT);
+    }
+
+    @Benchmark
+    public List<Long> getPopularFilmByJoin() {
+        return storages.getJdbcTemplate().queryForList(POPULAR_BY_JOIN_SQL, Long.class, COUNT);
+    }
+
+    @Benchmark
+    public boolean addAndDeleteLike() {
+        long filmId = 1 + ThreadLocalRandom.current().nextInt(FILMS);
+        filmStorage.addLikeToFilm(filmId, likingUserId);
+        return filmStorage.deleteLikeFromFilm(filmId, likingUserId);
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс бенчмарков сериализации в JSON списков фильмов и пользователей, какими их возвращают контроллеры.
+ * Списки загружаются из хранилища, поэтому размер лайков, жанров и друзей соответствует набору данных
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({BenchmarkStorages.DB, BenchmarkStorages.MEMORY})
+    private String storage;
+    @Param({"1000", "10000"})
+    private int size;
+    @Param({"1", "100"})
+    private int pageSize;
+
+    private BenchmarkStorages storages;
+    /**
+     * Поле объектный маппер с настройками Spring Boot по умолчанию
+     */
+    private ObjectMapper objectMapper;
+    private List<Film> films;
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storages = new BenchmarkStorages(storage);
+        BenchmarkDataset.fill(storages, size);
+        objectMapper = new Jackson2ObjectMapperBuilder()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        films = storages.getFilmStorage().findFilms(null, pageSize);
+        for (Film film : films) {
+            if (storages.isDatabase()) {
+                film.setGenres(storages.getGenreStorage().getGenresByFilm(film));
+            }
+            film.setLikes(storages.getFilmStorage().getLikesByFilm(film));
+        }
+        users = storages.getUserStorage().findUsers(null, pageSize);
+        users.forEach(user -> user.setFriends(storages.getUserStorage().getIdFriendsByUser(user)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storages.close();
+    }
+
+    @Benchmark
+    public String serializeFilms() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(films);
+    }
+
+    @Benchmark
+    public String serializeUsers() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(users);
+    }
+}
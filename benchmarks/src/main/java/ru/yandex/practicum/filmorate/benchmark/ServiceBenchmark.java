@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmCache;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendIdsCache;
+import ru.yandex.practicum.filmorate.service.PopularFilmsLeaderboard;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.validator.FilmValidator;
+import ru.yandex.practicum.filmorate.validator.PageValidator;
+import ru.yandex.practicum.filmorate.validator.UserValidator;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс бенчмарков сервисов фильмов и пользователей над хранилищами в базе данных и в памяти.
+ * Сервисы собираются без контекста Spring с теми же зависимостями, что и в приложении.
+ * Без кэшей (cached = false) каждый вызов getFilmById загружает жанры, рейтинг и лайки фильма,
+ * а getCommonFriends - друзей обоих пользователей из хранилища. Список фильмов и страница списка
+ * загружают жанры, рейтинги и лайки всех фильмов пакетно, поэтому количество SQL-запросов,
+ * которое выводится рядом со временем вызова, не растет с размером набора
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+    @Param({BenchmarkStorages.DB, BenchmarkStorages.MEMORY})
+    private String storage;
+    @Param({"1000", "10000", "100000"})
+    private int size;
+    @Param({"true", "false"})
+    private boolean cached;
+
+    private BenchmarkStorages storages;
+    private BenchmarkDataset dataset;
+    private FilmService filmService;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storages = new BenchmarkStorages(storage);
+        dataset = BenchmarkDataset.fill(storages, size);
+        PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard(storages.getFilmStorage());
+        leaderboard.afterSingletonsInstantiated();
+        // Кэш с нулевыми временем жизни и весом не сохраняет записи
+        FilmCache filmCache = cached ? new FilmCache(60_000, 100_000) : new FilmCache(0, 0);
+        FriendIdsCache friendIdsCache = cached ? new FriendIdsCache(300_000, 1_000_000) : new FriendIdsCache(0, 0);
+        filmService = new FilmService(storages.getFilmStorage(), storages.getUserStorage(), new FilmValidator(),
+                storages.getGenreStorage(), storages.getMpaStorage(), leaderboard, filmCache, new PageValidator());
+        userService = new UserService(storages.getUserStorage(), storages.getFilmStorage(), new UserValidator(),
+                leaderboard, filmCache, new PageValidator(), friendIdsCache);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storages.close();
+    }
+
+    @Benchmark
+    public Film getFilmById(SqlStatementCounters counters) {
+        long filmId = dataset.randomFilmId(ThreadLocalRandom.current());
+        return counters.count(storages, () -> filmService.getFilmById(filmId));
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilm(SqlStatementCounters counters) {
+        return counters.count(storages, () -> filmService.getPopularFilm(10));
+    }
+
+    @Benchmark
+    public List<Film> findAllFilms(SqlStatementCounters counters) {
+        return counters.count(storages, () -> filmService.findAllFilms());
+    }
+
+    @Benchmark
+    public List<Film> findFilmsPage(SqlStatementCounters counters) {
+        return counters.count(storages, () -> filmService.findFilms(null, PageValidator.DEFAULT_PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(SqlStatementCounters counters) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long userId = dataset.randomUserId(random);
+        long otherId = dataset.randomUserId(random);
+        return counters.count(storages, () -> userService.getCommonFriends(userId, otherId));
+    }
+}
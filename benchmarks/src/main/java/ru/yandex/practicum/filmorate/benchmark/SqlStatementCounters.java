@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.function.Supplier;
+
+/**
+ * Класс счетчиков SQL-запросов бенчмарка. JMH выводит поля statements и calls рядом с временем
+ * вызова и сохраняет их в результатах, количество запросов на вызов - statements / calls.
+ * Запросы считаются по всем потокам набора хранилищ, поэтому счетчики используются только
+ * в однопоточных бенчмарках
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class SqlStatementCounters {
+    /**
+     * Поле количество SQL-запросов за итерацию
+     */
+    public long statements;
+    /**
+     * Поле количество вызовов за итерацию
+     */
+    public long calls;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        statements = 0;
+        calls = 0;
+    }
+
+    /**
+     * Метод выполнения операции с подсчетом SQL-запросов
+     *
+     * @param storages  хранилища, запросы которых считаются
+     * @param operation операция бенчмарка
+     * @return результат операции
+     */
+    public <T> T count(BenchmarkStorages storages, Supplier<T> operation) {
+        long before = storages.getStatementCount();
+        T result = operation.get();
+        statements += storages.getStatementCount() - before;
+        calls++;
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс бенчмарков хранилища пользователей: общие друзья и друзья пользователя.
+ * Кроме времени вызова выводится количество SQL-запросов
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserStorageBenchmark {
+    @Param({BenchmarkStorages.DB, BenchmarkStorages.MEMORY})
+    private String storage;
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private BenchmarkStorages storages;
+    private BenchmarkDataset dataset;
+    private UserStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storages = new BenchmarkStorages(storage);
+        dataset = BenchmarkDataset.fill(storages, size);
+        userStorage = storages.getUserStorage();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storages.close();
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(SqlStatementCounters counters) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long userId = dataset.randomUserId(random);
+        long otherId = dataset.randomUserId(random);
+        return counters.count(storages, () -> userStorage.getCommonFriends(userId, otherId));
+    }
+
+    @Benchmark
+    public List<User> getFriendsByUser(SqlStatementCounters counters) {
+        long userId = dataset.randomUserId(ThreadLocalRandom.current());
+        return counters.count(storages, () -> userStorage.getFriendsByUser(userId));
+    }
+}
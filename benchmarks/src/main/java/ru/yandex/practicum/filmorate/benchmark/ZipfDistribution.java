@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.util.Random;
+
+/**
+ * Класс распределения Ципфа на рангах 1..n: вероятность ранга k пропорциональна 1 / k^s.
+ * Выборка выполняется методом rejection-inversion (W. Hörmann, G. Derflinger) за O(1)
+ * без таблиц вероятностей, поэтому подходит для десятков миллионов рангов
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+public class ZipfDistribution {
+    /**
+     * Поле количество рангов
+     */
+    private final int n;
+    /**
+     * Поле показатель степени
+     */
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param n        - количество рангов
+     * @param exponent - показатель степени, 0 - равномерное распределение
+     */
+    public ZipfDistribution(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Количество рангов должно быть положительным: " + n);
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Показатель степени не может быть отрицательным: " + exponent);
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * Метод выборки ранга
+     *
+     * @param random генератор случайных чисел
+     * @return ранг от 1 до n, ранг 1 самый частый
+     */
+    public int sample(Random random) {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    public int getN() {
+        return n;
+    }
+
+    public double getExponent() {
+        return exponent;
+    }
+
+    /**
+     * Метод вычисления H(x) - первообразной функции h(x) = 1 / x^exponent
+     */
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1 - exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1 - exponent);
+        if (t < -1) {
+            // Защита от ошибок округления у левой границы
+            t = -1;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    /**
+     * Метод вычисления log(1 + x) / x, устойчивый при x, близком к нулю
+     */
+    private static double helper1(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.log1p(x) / x;
+        }
+        return 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    /**
+     * Метод вычисления (exp(x) - 1) / x, устойчивый при x, близком к нулю
+     */
+    private static double helper2(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.expm1(x) / x;
+        }
+        return 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверка выборки Ципфа критерием хи-квадрат против точных вероятностей 1 / k^s.
+ * Генератор с фиксированным зерном, поэтому результат проверки не меняется от запуска к запуску
+ */
+public class ZipfDistributionTest {
+    private static final int RANKS = 50;
+    private static final int SAMPLES = 500_000;
+    /**
+     * Поле критическое значение хи-квадрат для 49 степеней свободы при уровне значимости 0.001
+     */
+    private static final double CHI_SQUARE_CRITICAL = 85.35;
+
+    @Test
+    public void uniformWhenExponentIsZero() {
+        assertFollowsPmf(0);
+    }
+
+    @Test
+    public void followsPmfBelowOne() {
+        assertFollowsPmf(0.8);
+    }
+
+    @Test
+    public void followsPmfAtOne() {
+        assertFollowsPmf(1.0);
+    }
+
+    @Test
+    public void followsPmfAboveOne() {
+        assertFollowsPmf(1.5);
+    }
+
+    @Test
+    public void singleRankIsAlwaysSampled() {
+        ZipfDistribution distribution = new ZipfDistribution(1, 1.0);
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(distribution.sample(random)).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void invalidParametersAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ZipfDistribution(0, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> new ZipfDistribution(10, -0.5));
+    }
+
+    private void assertFollowsPmf(double exponent) {
+        ZipfDistribution distribution = new ZipfDistribution(RANKS, exponent);
+        Random random = new Random(42);
+        long[] observed = new long[RANKS + 1];
+        for (int i = 0; i < SAMPLES; i++) {
+            int rank = distribution.sample(random);
+            assertThat(rank).isBetween(1, RANKS);
+            observed[rank]++;
+        }
+
+        double norm = 0;
+        for (int k = 1; k <= RANKS; k++) {
+            norm += Math.pow(k, -exponent);
+        }
+        double chiSquare = 0;
+        for (int k = 1; k <= RANKS; k++) {
+            double expected = SAMPLES * Math.pow(k, -exponent) / norm;
+            chiSquare += (observed[k] - expected) * (observed[k] - expected) / expected;
+        }
+        assertThat(chiSquare).as("хи-квадрат для показателя " + exponent).isLessThan(CHI_SQUARE_CRITICAL);
+    }
+}
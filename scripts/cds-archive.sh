@@ -0,0 +1,36 @@
+#!/usr/bin/env bash
+# Сборка архива class-data sharing (AppCDS) для быстрого запуска приложения на JDK 11+.
+# CDS не читает классы из вложенных jar, поэтому собранный jar распаковывается в target/cds:
+# классы приложения упаковываются в отдельный jar, зависимости лежат рядом.
+# Список классов снимается пробным запуском до первого обработанного запроса.
+#
+# Использование: scripts/cds-archive.sh            (после mvn package)
+# Запуск с архивом: java -XX:SharedArchiveFile=target/cds/filmorate.jsa -cp "$(cat target/cds/classpath)" \
+#                        ru.yandex.practicum.filmorate.FilmorateApplication
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+JAR=$(ls target/filmorate-*-exec.jar | head -1)
+CDS_DIR=target/cds
+PORT=${PORT:-18080}
+MAIN=ru.yandex.practicum.filmorate.FilmorateApplication
+
+rm -rf "$CDS_DIR" && mkdir -p "$CDS_DIR/app"
+unzip -q "$JAR" -d "$CDS_DIR/app"
+jar cf "$CDS_DIR/filmorate-classes.jar" -C "$CDS_DIR/app/BOOT-INF/classes" .
+# Порядок jar в пути классов при запуске должен совпадать с порядком при сборке архива
+CLASSPATH="$CDS_DIR/filmorate-classes.jar:$(ls "$CDS_DIR"/app/BOOT-INF/lib/*.jar | sort | paste -sd: -)"
+echo "$CLASSPATH" > "$CDS_DIR/classpath"
+
+java -Xshare:off -XX:DumpLoadedClassList="$CDS_DIR/classes.lst" -cp "$CLASSPATH" "$MAIN" \
+    --server.port="$PORT" --spring.datasource.url="jdbc:h2:mem:cds;DB_CLOSE_DELAY=-1" &
+PID=$!
+until curl -sf "http://localhost:$PORT/films/popular" > /dev/null; do
+    kill -0 "$PID" 2> /dev/null || { echo "Приложение завершилось до первого запроса" >&2; exit 1; }
+    sleep 0.2
+done
+kill "$PID" && wait "$PID" || true
+
+java -Xshare:dump -XX:SharedClassListFile="$CDS_DIR/classes.lst" \
+    -XX:SharedArchiveFile="$CDS_DIR/filmorate.jsa" -cp "$CLASSPATH"
+echo "Архив CDS: $CDS_DIR/filmorate.jsa ($(wc -l < "$CDS_DIR/classes.lst") классов)"
@@ -0,0 +1,43 @@
+#!/usr/bin/env bash
+# Замер времени запуска: сколько миллисекунд проходит от запуска JVM до ответа на первый запрос.
+# Каждый прогон стартует приложение с базой в памяти, ждет ответа GET /films/popular,
+# печатает время снаружи и метрики /metrics/startup изнутри (готовность и первый запрос от старта JVM).
+#
+# Использование: scripts/startup-benchmark.sh [прогонов] [профиль]
+#   MODE=jar  - собранный jar (по умолчанию)
+#   MODE=cds  - распакованный jar с архивом scripts/cds-archive.sh
+# Пример: MODE=cds scripts/startup-benchmark.sh 10 fast-start
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${1:-5}
+PROFILE=${2:-default}
+MODE=${MODE:-jar}
+PORT=${PORT:-18080}
+MAIN=ru.yandex.practicum.filmorate.FilmorateApplication
+
+case "$MODE" in
+    jar) COMMAND=(java -jar "$(ls target/filmorate-*-exec.jar | head -1)") ;;
+    cds) COMMAND=(java -XX:SharedArchiveFile=target/cds/filmorate.jsa -Xshare:auto
+                  -cp "$(cat target/cds/classpath)" "$MAIN") ;;
+    *) echo "Неизвестный режим $MODE" >&2; exit 1 ;;
+esac
+
+RESULTS=()
+for run in $(seq 1 "$RUNS"); do
+    START=$(date +%s%N)
+    "${COMMAND[@]}" --server.port="$PORT" --spring.profiles.active="$PROFILE" \
+        --spring.datasource.url="jdbc:h2:mem:startup$run;DB_CLOSE_DELAY=-1" > /dev/null 2>&1 &
+    PID=$!
+    until curl -sf "http://localhost:$PORT/films/popular" > /dev/null; do
+        kill -0 "$PID" 2> /dev/null || { echo "Приложение завершилось до первого запроса" >&2; exit 1; }
+        sleep 0.01
+    done
+    ELAPSED=$(( ($(date +%s%N) - START) / 1000000 ))
+    RESULTS+=("$ELAPSED")
+    echo "run $run: ${ELAPSED} мс до первого ответа, $(curl -sf "http://localhost:$PORT/metrics/startup")"
+    kill "$PID" && wait "$PID" || true
+done
+
+MEDIAN=$(printf '%s\n' "${RESULTS[@]}" | sort -n | awk '{ v[NR] = $1 } END { print v[int((NR + 1) / 2)] }')
+echo "mode=$MODE profile=$PROFILE runs=$RUNS median=${MEDIAN} мс"
@@ -1,26 +1,25 @@
 package ru.yandex.practicum.filmorate;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.PropertySource;
-import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
-import org.springframework.jdbc.datasource.init.DataSourceInitializer;
-import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import ru.yandex.practicum.filmorate.metrics.ConnectionPoolMetrics;
+import ru.yandex.practicum.filmorate.metrics.SqlStatementMetrics;
 
 import javax.sql.DataSource;
 
 @Configuration
-@ComponentScan
 @EnableTransactionManagement
-@PropertySource(value = {"classpath:application.properties"})
 public class AppConfig {
 
     @Value("${spring.datasource.driverClassName}")
@@ -35,12 +34,33 @@ public class AppConfig {
     @Value("${spring.datasource.password}")
     private String password;
 
-    @Bean
-    public static PropertySourcesPlaceholderConfigurer placeHolderConfigurer() {
-        return new PropertySourcesPlaceholderConfigurer();
-    }
+    @Value("${filmorate.datasource.pool.enabled:true}")
+    private boolean poolEnabled;
+
+    @Value("${filmorate.datasource.pool.maximum-size:10}")
+    private int poolMaximumSize;
+
+    @Value("${filmorate.datasource.pool.minimum-idle:2}")
+    private int poolMinimumIdle;
+
+    @Value("${filmorate.datasource.pool.idle-timeout-ms:600000}")
+    private long poolIdleTimeoutMs;
+
+    @Value("${filmorate.datasource.pool.max-lifetime-ms:1800000}")
+    private long poolMaxLifetimeMs;
+
+    @Value("${filmorate.datasource.pool.connection-timeout-ms:30000}")
+    private long poolConnectionTimeoutMs;
 
+    @Value("${filmorate.datasource.statement-cache-size:256}")
+    private int statementCacheSize;
+
+    /**
+     * Все обращения к базе данных идут через JdbcTemplate, поэтому он создается
+     * только после того, как схема приведена к последней версии
+     */
     @Bean
+    @DependsOn("schemaMigrator")
     public JdbcTemplate jdbcTemplate(DataSource dataSource) {
         return new JdbcTemplate(dataSource);
     }
@@ -50,8 +70,40 @@ public class AppConfig {
         return new DataSourceTransactionManager(dataSource);
     }
 
+    /**
+     * Любой источник соединений, в том числе подмененный в тестах, оборачивается для подсчета SQL-запросов
+     * и журнала медленных запросов.
+     * Метрики запрашиваются при первом источнике, чтобы обработчик не создавал их раньше остальных бинов
+     */
+    @Bean
+    public static BeanPostProcessor sqlStatementCounting(ObjectProvider<SqlStatementMetrics> statementMetrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ? statementMetrics.getObject().wrap((DataSource) bean) : bean;
+            }
+        };
+    }
+
     @Bean
-    public DataSource dataSource() {
+    public DataSource dataSource(ConnectionPoolMetrics poolMetrics) {
+        if (poolEnabled) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("filmorate");
+            config.setDriverClassName(driverClassName);
+            config.setJdbcUrl(url);
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(poolMaximumSize);
+            config.setMinimumIdle(poolMinimumIdle);
+            config.setIdleTimeout(poolIdleTimeoutMs);
+            config.setMaxLifetime(poolMaxLifetimeMs);
+            config.setConnectionTimeout(poolConnectionTimeoutMs);
+            // H2 кэширует разобранные запросы в рамках сессии, а сессия живет столько же, сколько соединение в пуле
+            config.setConnectionInitSql("SET QUERY_CACHE_SIZE " + statementCacheSize);
+            config.setMetricsTrackerFactory(poolMetrics);
+            return new HikariDataSource(config);
+        }
         DriverManagerDataSource dataSource = new DriverManagerDataSource();
         dataSource.setDriverClassName(driverClassName);
         dataSource.setUrl(url);
@@ -59,15 +111,4 @@ public class AppConfig {
         dataSource.setPassword(password);
         return dataSource;
     }
-
-    @Bean
-    public DataSourceInitializer dataSourceInitializer(DataSource dataSource) {
-        DataSourceInitializer dataSourceInitializer = new DataSourceInitializer();
-        dataSourceInitializer.setDataSource(dataSource);
-        ResourceDatabasePopulator databasePopulator = new ResourceDatabasePopulator();
-        databasePopulator.addScript(new ClassPathResource("data.sql"));
-        dataSourceInitializer.setDatabasePopulator(databasePopulator);
-        dataSourceInitializer.setEnabled(false);
-        return dataSourceInitializer;
-    }
 }
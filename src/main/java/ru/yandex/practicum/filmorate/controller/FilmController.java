@@ -3,12 +3,18 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.BulkImporter;
+import ru.yandex.practicum.filmorate.service.NdjsonWriter;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
-
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -27,15 +33,43 @@ public class FilmController {
      * Поле сервис для работы с хранилищем фильмов
      */
     private final FilmService service;
+    /**
+     * Поле пакетная загрузка
+     */
+    private final BulkImporter importer;
+    /**
+     * Поле потоковая запись NDJSON
+     */
+    private final NdjsonWriter ndjsonWriter;
 
     /**
      * Метод получения всего списка фильмов через запрос
      *
-     * @return список всех фильмов
+     * @param after идентификатор последнего объекта предыдущей страницы;
+     *              если не указаны after и limit, возвращается весь список
+     * @param limit размер страницы
+     * @return список всех фильмов или страница списка, упорядоченная по идентификатору
      */
     @GetMapping
-    public List<Film> findAll() {
-        return service.findAllFilms();
+    public List<Film> findAll(@RequestParam(required = false) Long after,
+                              @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return service.findAllFilms();
+        }
+        return service.findFilms(after, limit);
+    }
+
+    /**
+     * Метод потоковой выгрузки всех фильмов через запрос в формате NDJSON (по объекту в строке)
+     *
+     * @param response ответ, в который пишутся фильмы
+     * @throws IOException при ошибке записи ответа
+     */
+    @GetMapping("/stream")
+    public void streamAll(HttpServletResponse response) throws IOException {
+        response.setContentType(BulkImporter.NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        ndjsonWriter.write(response.getOutputStream(), Film.class, service::streamFilms);
     }
 
     /**
@@ -49,6 +83,22 @@ public class FilmController {
         return new ResponseEntity<>(service.createFilm(film), HttpStatus.CREATED);
     }
 
+    /**
+     * Метод пакетной загрузки фильмов через запрос. Тело запроса - JSON-массив фильмов или NDJSON,
+     * в ответ по мере сохранения пишется NDJSON с результатом по каждой строке
+     *
+     * @param body     тело запроса
+     * @param response ответ, в который пишутся результаты
+     * @throws IOException при ошибке чтения запроса или записи ответа
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, BulkImporter.NDJSON})
+    public void createBulk(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(BulkImporter.NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        importer.importRows(body, response.getOutputStream(), Film.class,
+                service::validateNewFilm, service::createFilms);
+    }
+
     /**
      * Метод обновления фильма в хранилище сервиса через запрос
      *
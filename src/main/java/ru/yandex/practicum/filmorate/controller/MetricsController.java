@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.metrics.MetricsSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Класс контроллера для получения метрик приложения
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    /**
+     * Поле источники метрик
+     */
+    private final List<MetricsSource> sources;
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param sources - все зарегистрированные источники метрик
+     */
+    public MetricsController(List<MetricsSource> sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * Метод получения метрик всех источников через запрос
+     *
+     * @return метрики, сгруппированные по имени источника
+     */
+    @GetMapping
+    public Map<String, Map<String, Object>> findAll() {
+        Map<String, Map<String, Object>> metrics = new TreeMap<>();
+        sources.forEach(source -> metrics.put(source.getName(), source.getMetrics()));
+        return metrics;
+    }
+
+    /**
+     * Метод получения метрик одного источника через запрос
+     *
+     * @param name имя источника метрик
+     * @return метрики источника
+     */
+    @GetMapping("/{name}")
+    public Map<String, Object> findByName(@PathVariable String name) {
+        return sources.stream()
+                .filter(source -> source.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Метрики " + name + " не найдены"))
+                .getMetrics();
+    }
+}
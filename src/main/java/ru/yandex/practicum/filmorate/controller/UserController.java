@@ -3,11 +3,18 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BulkImporter;
+import ru.yandex.practicum.filmorate.service.NdjsonWriter;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -25,15 +32,43 @@ public class UserController {
      * Поле сервис для работы с хранилищем пользователей
      */
     private final UserService service;
+    /**
+     * Поле пакетная загрузка
+     */
+    private final BulkImporter importer;
+    /**
+     * Поле потоковая запись NDJSON
+     */
+    private final NdjsonWriter ndjsonWriter;
 
     /**
      * Метод получения всего списка пользователей из хранилища через запрос
      *
-     * @return список всех пользователей
+     * @param after идентификатор последнего объекта предыдущей страницы;
+     *              если не указаны after и limit, возвращается весь список
+     * @param limit размер страницы
+     * @return список всех пользователей или страница списка, упорядоченная по идентификатору
      */
     @GetMapping
-    public List<User> findAll() {
-        return service.findAllUsers();
+    public List<User> findAll(@RequestParam(required = false) Long after,
+                              @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return service.findAllUsers();
+        }
+        return service.findUsers(after, limit);
+    }
+
+    /**
+     * Метод потоковой выгрузки всех пользователей через запрос в формате NDJSON (по объекту в строке)
+     *
+     * @param response ответ, в который пишутся пользователи
+     * @throws IOException при ошибке записи ответа
+     */
+    @GetMapping("/stream")
+    public void streamAll(HttpServletResponse response) throws IOException {
+        response.setContentType(BulkImporter.NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        ndjsonWriter.write(response.getOutputStream(), User.class, service::streamUsers);
     }
 
     /**
@@ -47,6 +82,22 @@ public class UserController {
         return new ResponseEntity<>(service.createUser(user), HttpStatus.CREATED);
     }
 
+    /**
+     * Метод пакетной загрузки пользователей через запрос. Тело запроса - JSON-массив пользователей или NDJSON,
+     * в ответ по мере сохранения пишется NDJSON с результатом по каждой строке
+     *
+     * @param body     тело запроса
+     * @param response ответ, в который пишутся результаты
+     * @throws IOException при ошибке чтения запроса или записи ответа
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, BulkImporter.NDJSON})
+    public void createBulk(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(BulkImporter.NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        importer.importRows(body, response.getOutputStream(), User.class,
+                service::validateNewUser, service::checkNewUsers, service::createUsers);
+    }
+
     /**
      * Метод обновления пользователя в хранилище сервиса через запрос
      *
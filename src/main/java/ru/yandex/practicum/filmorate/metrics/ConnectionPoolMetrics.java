@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс метрик пула соединений с базой данных: количество активных, свободных и ожидающих соединений,
+ * гистограммы времени получения и удержания соединения
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Component
+public class ConnectionPoolMetrics implements MetricsTrackerFactory, MetricsSource {
+    /**
+     * Поле гистограмма времени получения соединения из пула
+     */
+    private final LatencyHistogram acquireTime = new LatencyHistogram();
+    /**
+     * Поле гистограмма времени удержания соединения
+     */
+    private final LatencyHistogram usageTime = new LatencyHistogram();
+    /**
+     * Поле количество превышений времени ожидания соединения
+     */
+    private final LongAdder timeouts = new LongAdder();
+    /**
+     * Поле статистика пула, null пока пул не создан
+     */
+    private volatile PoolStats poolStats;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireTime.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageTime.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return "pool";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        PoolStats stats = poolStats;
+        metrics.put("enabled", stats != null);
+        if (stats != null) {
+            metrics.put("active", stats.getActiveConnections());
+            metrics.put("idle", stats.getIdleConnections());
+            metrics.put("total", stats.getTotalConnections());
+            metrics.put("pending", stats.getPendingThreads());
+            metrics.put("max", stats.getMaxConnections());
+            metrics.put("min", stats.getMinConnections());
+        }
+        metrics.put("timeouts", timeouts.sum());
+        metrics.put("acquireTime", acquireTime.snapshot());
+        metrics.put("usageTime", usageTime.snapshot());
+        return metrics;
+    }
+}
@@ -0,0 +1,184 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс метрик HTTP-запросов по шаблонам маршрутов, например GET /films/{id}/like/{userId}:
+ * гистограмма длительности, количество запросов и их частота за последнюю минуту, количество ответов
+ * с ошибкой клиента (4xx) и сервера (5xx). Запросы без подходящего обработчика собираются в один маршрут,
+ * а нестандартные HTTP-методы - в один метод, чтобы произвольные адреса и методы не размножали метрики. Запись запроса - несколько атомарных инкрементов
+ * без блокировок и выделения памяти, кроме первого запроса маршрута: метрики ищутся по методу и шаблону,
+ * которые уже есть в запросе, а общее имя маршрута собирается только при чтении метрик
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class HttpRequestMetrics implements MetricsSource, Filter {
+    /**
+     * Поле маршрут запросов без подходящего обработчика
+     */
+    public static final String UNMATCHED_ROUTE = "unmatched";
+    /**
+     * Поле метод, под которым учитываются запросы с нестандартным HTTP-методом
+     */
+    public static final String OTHER_METHOD = "OTHER";
+    /**
+     * Поле метрики по маршрутам: сначала по HTTP-методу, затем по шаблону маршрута,
+     * чтобы не собирать общий ключ из метода и маршрута на каждый запрос
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, RouteMetrics>> routes = new ConcurrentHashMap<>();
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            chain.doFilter(request, response);
+            status = ((HttpServletResponse) response).getStatus();
+        } finally {
+            // Шаблон маршрута известен только после выбора обработчика
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            record(((HttpServletRequest) request).getMethod(), route == null ? UNMATCHED_ROUTE : route.toString(),
+                    status, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Метод учета завершенного запроса
+     *
+     * @param method HTTP-метод, нестандартный метод учитывается как {@link #OTHER_METHOD}
+     * @param route  шаблон маршрута
+     * @param status код ответа
+     * @param nanos  длительность запроса в наносекундах
+     */
+    public void record(String method, String route, int status, long nanos) {
+        if (HttpMethod.resolve(method) == null) {
+            method = OTHER_METHOD;
+        }
+        ConcurrentMap<String, RouteMetrics> methodRoutes = routes.get(method);
+        if (methodRoutes == null) {
+            methodRoutes = routes.computeIfAbsent(method, name -> new ConcurrentHashMap<>());
+        }
+        RouteMetrics metrics = methodRoutes.get(route);
+        if (metrics == null) {
+            metrics = methodRoutes.computeIfAbsent(route, name -> new RouteMetrics());
+        }
+        metrics.latency.record(nanos);
+        metrics.rate.record(System.nanoTime());
+        if (status >= 500) {
+            metrics.serverErrors.increment();
+        } else if (status >= 400) {
+            metrics.clientErrors.increment();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "http";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long now = System.nanoTime();
+        Map<String, Object> metrics = new TreeMap<>();
+        routes.forEach((method, methodRoutes) -> methodRoutes.forEach((route, routeMetrics) ->
+                metrics.put(method + " " + route, routeMetrics.snapshot(now))));
+        return metrics;
+    }
+
+    /**
+     * Класс метрик одного маршрута
+     */
+    private static final class RouteMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final RecentRate rate = new RecentRate();
+        private final LongAdder clientErrors = new LongAdder();
+        private final LongAdder serverErrors = new LongAdder();
+
+        private Map<String, Object> snapshot(long now) {
+            Map<String, Object> latencySnapshot = latency.snapshot();
+            long requests = (long) latencySnapshot.get("count");
+            long errors = serverErrors.sum();
+            long failures = clientErrors.sum();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("requests", requests);
+            snapshot.put("requestsPerSecond", rate.perSecond(now));
+            snapshot.put("clientErrors", failures);
+            snapshot.put("serverErrors", errors);
+            snapshot.put("clientErrorRate", requests == 0 ? 0.0 : (double) failures / requests);
+            snapshot.put("serverErrorRate", requests == 0 ? 0.0 : (double) errors / requests);
+            snapshot.put("latency", latencySnapshot);
+            return snapshot;
+        }
+    }
+
+    /**
+     * Класс частоты запросов за последнюю минуту: счетчики по секундам в кольцевом массиве.
+     * Счетчик секунды обнуляется первым запросом этой секунды, запрос, пришедший одновременно
+     * с обнулением, может быть потерян, поэтому частота приблизительная
+     */
+    static final class RecentRate {
+        private static final int WINDOW_SECONDS = 60;
+        private static final long NANOS_PER_SECOND = 1_000_000_000L;
+        private final AtomicLongArray counts = new AtomicLongArray(WINDOW_SECONDS);
+        private final AtomicLongArray seconds = new AtomicLongArray(WINDOW_SECONDS);
+
+        RecentRate() {
+            for (int i = 0; i < WINDOW_SECONDS; i++) {
+                seconds.set(i, Long.MIN_VALUE);
+            }
+        }
+
+        void record(long nanoTime) {
+            long second = Math.floorDiv(nanoTime, NANOS_PER_SECOND);
+            int slot = (int) Math.floorMod(second, (long) WINDOW_SECONDS);
+            long stamp = seconds.get(slot);
+            if (stamp != second && seconds.compareAndSet(slot, stamp, second)) {
+                counts.set(slot, 0);
+            }
+            counts.incrementAndGet(slot);
+        }
+
+        /**
+         * Метод получения средней частоты за последние полные WINDOW_SECONDS секунд
+         */
+        double perSecond(long nanoTime) {
+            long current = Math.floorDiv(nanoTime, NANOS_PER_SECOND);
+            long total = 0;
+            for (int i = 0; i < WINDOW_SECONDS; i++) {
+                long second = seconds.get(i);
+                if (second < current && second >= current - WINDOW_SECONDS) {
+                    total += counts.get(i);
+                }
+            }
+            return (double) total / WINDOW_SECONDS;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Класс источника соединений, который считает выполненные запросы, замеряет время их выполнения
+ * и записывает медленные запросы в журнал. Соединения и запросы оборачиваются динамическими прокси:
+ * каждый вызов execute* (пакет - один вызов) передается в {@link SqlStatementMetrics}, значения параметров
+ * запоминаются для {@link SlowQueryLog}, остальные методы вызываются у исходных объектов без изменений.
+ * Время чтения результата после выполнения запроса не учитывается. Результат медленного запроса
+ * тоже оборачивается, чтобы посчитать прочитанные строки: запрос попадает в журнал при закрытии результата
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+class InstrumentedDataSource extends DelegatingDataSource implements Closeable {
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement",
+            "prepareCall");
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    /**
+     * Поле получатель количества и времени запросов
+     */
+    private final SqlStatementMetrics metrics;
+    /**
+     * Поле журнал медленных запросов
+     */
+    private final SlowQueryLog slowQueryLog;
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param dataSource   - исходный источник соединений
+     * @param metrics      - получатель количества и времени запросов
+     * @param slowQueryLog - журнал медленных запросов
+     */
+    InstrumentedDataSource(DataSource dataSource, SqlStatementMetrics metrics, SlowQueryLog slowQueryLog) {
+        super(dataSource);
+        this.metrics = metrics;
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    /**
+     * Метод закрытия исходного источника соединений, например пула Hikari, при остановке приложения
+     */
+    @Override
+    public void close() throws IOException {
+        if (obtainTargetDataSource() instanceof Closeable) {
+            ((Closeable) obtainTargetDataSource()).close();
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Класс обработчика вызовов соединения: созданные соединением запросы тоже оборачиваются
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        private ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            // Прокси равно только самому себе, как соединение, выданное пулом
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            Object result = InstrumentedDataSource.invoke(target, method, args);
+            if (!STATEMENT_FACTORIES.contains(method.getName())) {
+                return result;
+            }
+            Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                    : result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            // Текст подготовленного запроса известен при создании, обычного - при выполнении
+            String sql = method.getName().equals("createStatement") ? null : (String) args[0];
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler((Statement) result, (Connection) proxy, sql));
+        }
+    }
+
+    /**
+     * Класс обработчика вызовов запроса: выполнение запроса замеряется и учитывается,
+     * параметры подготовленного запроса запоминаются, если журнал медленных запросов включен
+     */
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final Connection connection;
+        private final String sql;
+        private Object[] parameters = NO_PARAMETERS;
+        private int parameterCount;
+
+        private StatementHandler(Statement target, Connection connection, String sql) {
+            this.target = target;
+            this.connection = connection;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getConnection")) {
+                return connection;
+            }
+            if (!EXECUTE_METHODS.contains(name)) {
+                if (slowQueryLog.isEnabled() && sql != null) {
+                    rememberParameter(name, args);
+                }
+                return InstrumentedDataSource.invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            long nanos;
+            Object result;
+            try {
+                result = InstrumentedDataSource.invoke(target, method, args);
+            } finally {
+                nanos = System.nanoTime() - start;
+                metrics.record(nanos);
+            }
+            return slowQueryLog.isSlow(nanos) ? captureSlow(proxy, args, result, nanos) : result;
+        }
+
+        /**
+         * Метод запоминания значения параметра из вызова set*(номер, значение, ...)
+         */
+        private void rememberParameter(String name, Object[] args) {
+            if (name.equals("clearParameters")) {
+                Arrays.fill(parameters, 0, parameterCount, null);
+                parameterCount = 0;
+                return;
+            }
+            if (!name.startsWith("set") || args == null || args.length < 2 || !(args[0] instanceof Integer)) {
+                return;
+            }
+            int index = (Integer) args[0] - 1;
+            if (index < 0) {
+                return;
+            }
+            if (index >= parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index + 1, parameters.length * 2));
+            }
+            // Второй аргумент setNull - тип SQL, а не значение
+            parameters[index] = name.equals("setNull") ? null : args[1];
+            parameterCount = Math.max(parameterCount, index + 1);
+        }
+
+        private Object captureSlow(Object proxy, Object[] args, Object result, long nanos) throws SQLException {
+            String statementSql = sql != null ? sql
+                    : args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+            Object[] values = Arrays.copyOf(parameters, parameterCount);
+            String request = metrics.currentRequest();
+            if (result instanceof ResultSet) {
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                        new RowCountingHandler((ResultSet) result, (Statement) proxy, statementSql, values, nanos,
+                                request));
+            }
+            slowQueryLog.capture(statementSql, values, rows(result), nanos, request, obtainTargetDataSource());
+            return result;
+        }
+
+        private long rows(Object result) throws SQLException {
+            if (result instanceof Number) {
+                return ((Number) result).longValue();
+            }
+            if (result instanceof Boolean) {
+                return (Boolean) result ? -1 : target.getUpdateCount();
+            }
+            long rows = 0;
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    if (count < 0) {
+                        return -1;
+                    }
+                    rows += count;
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    if (count < 0) {
+                        return -1;
+                    }
+                    rows += count;
+                }
+            } else {
+                return -1;
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Класс обработчика вызовов результата медленного запроса: считает прочитанные строки
+     * и записывает запрос в журнал при закрытии результата
+     */
+    private final class RowCountingHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final Statement statement;
+        private final String sql;
+        private final Object[] parameters;
+        private final long nanos;
+        private final String request;
+        private long rows;
+        private boolean captured;
+
+        private RowCountingHandler(ResultSet target, Statement statement, String sql, Object[] parameters,
+                                   long nanos, String request) {
+            this.target = target;
+            this.statement = statement;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.nanos = nanos;
+            this.request = request;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getStatement":
+                    return statement;
+                case "next":
+                    Object next = InstrumentedDataSource.invoke(target, method, args);
+                    if (Boolean.TRUE.equals(next)) {
+                        rows++;
+                    }
+                    return next;
+                case "close":
+                    if (!captured) {
+                        captured = true;
+                        slowQueryLog.capture(sql, parameters, rows, nanos, request, obtainTargetDataSource());
+                    }
+                    return InstrumentedDataSource.invoke(target, method, args);
+                default:
+                    return InstrumentedDataSource.invoke(target, method, args);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс потокобезопасной гистограммы длительностей в наносекундах.
+ * Значения раскладываются по логарифмически-линейным корзинам (как в HdrHistogram):
+ * каждая степень двойки делится на 32 корзины, поэтому относительная погрешность перцентилей не превышает 3%,
+ * а запись значения стоит одного атомарного инкремента без блокировок и выделения памяти
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+public class LatencyHistogram {
+    /**
+     * Поле количество бит на корзины внутри одной степени двойки
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+    /**
+     * Поле количество корзин внутри одной степени двойки
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * Поле максимальное учитываемое значение (около 18 минут), большие значения попадают в последнюю корзину
+     */
+    private static final long MAX_VALUE = (1L << 40) - 1;
+    /**
+     * Поле счетчики корзин
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(bucketIndex(MAX_VALUE) + 1);
+    /**
+     * Поле количество записанных значений
+     */
+    private final LongAdder count = new LongAdder();
+    /**
+     * Поле сумма записанных значений
+     */
+    private final LongAdder sum = new LongAdder();
+    /**
+     * Поле максимальное записанное значение
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Метод записи длительности
+     *
+     * @param nanos длительность в наносекундах
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Метод получения количества записанных значений
+     *
+     * @return количество значений
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Метод получения значения перцентиля
+     *
+     * @param percentile перцентиль от 0 до 100
+     * @return верхняя граница корзины, в которую попадает перцентиль, в наносекундах
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Метод получения сводки по гистограмме в миллисекундах
+     *
+     * @return количество значений, среднее, перцентили p50, p90, p99, p999 и максимум
+     */
+    public Map<String, Object> snapshot() {
+        long total = count.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", total);
+        snapshot.put("meanMs", total == 0 ? 0.0 : toMillis(sum.sum() / total));
+        snapshot.put("p50Ms", toMillis(getValueAtPercentile(50)));
+        snapshot.put("p90Ms", toMillis(getValueAtPercentile(90)));
+        snapshot.put("p99Ms", toMillis(getValueAtPercentile(99)));
+        snapshot.put("p999Ms", toMillis(getValueAtPercentile(99.9)));
+        snapshot.put("maxMs", toMillis(max.get()));
+        return snapshot;
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import java.util.Map;
+
+/**
+ * Интерфейс источника метрик, публикуемых через {@link ru.yandex.practicum.filmorate.controller.MetricsController}
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+public interface MetricsSource {
+    /**
+     * Метод получения имени источника метрик
+     *
+     * @return имя, под которым метрики доступны по адресу /metrics/{name}
+     */
+    String getName();
+
+    /**
+     * Метод получения текущих значений метрик
+     *
+     * @return значения метрик по их названиям
+     */
+    Map<String, Object> getMetrics();
+}
@@ -0,0 +1,246 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс журнала медленных SQL-запросов: запросы дольше порога пишутся в лог вместе с параметрами,
+ * количеством строк и временем выполнения и сохраняются в кольцевом буфере последних запросов.
+ * Для каждого медленного запроса в отдельном потоке строится план H2 с теми же параметрами:
+ * для SELECT - EXPLAIN ANALYZE с фактическим количеством просмотренных строк, для изменяющих запросов -
+ * EXPLAIN, потому что EXPLAIN ANALYZE выполнил бы изменение повторно. План строится на соединении
+ * исходного источника, поэтому сам в журнал и в метрики запросов не попадает
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class SlowQueryLog implements MetricsSource, DisposableBean {
+    /**
+     * Поле максимальное количество параметров, сохраняемых в записи журнала
+     */
+    static final int MAX_PARAMETERS = 50;
+    /**
+     * Поле максимальная длина значения параметра в записи журнала
+     */
+    static final int MAX_PARAMETER_LENGTH = 100;
+    /**
+     * Поле размер очереди запросов на построение плана, лишние запросы остаются без плана
+     */
+    private static final int EXPLAIN_QUEUE_SIZE = 16;
+
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final boolean explain;
+    /**
+     * Поле кольцевой буфер последних медленных запросов
+     */
+    private final SlowQuery[] entries;
+    /**
+     * Поле количество медленных запросов за все время, позиция следующей записи в буфере
+     */
+    private long captured;
+    private final LongAdder skippedPlans = new LongAdder();
+    private final ThreadPoolExecutor explainExecutor;
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param enabled     - вести ли журнал медленных запросов
+     * @param thresholdMs - порог времени выполнения запроса в миллисекундах
+     * @param capacity    - количество хранимых последних медленных запросов
+     * @param explain     - строить ли план медленного запроса
+     */
+    public SlowQueryLog(@Value("${filmorate.sql.slow-query.enabled:true}") boolean enabled,
+                        @Value("${filmorate.sql.slow-query.threshold-ms:100}") long thresholdMs,
+                        @Value("${filmorate.sql.slow-query.capacity:100}") int capacity,
+                        @Value("${filmorate.sql.slow-query.explain:true}") boolean explain) {
+        if (thresholdMs < 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Порог медленного запроса не может быть отрицательным, "
+                    + "размер журнала должен быть положительным");
+        }
+        this.enabled = enabled;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.explain = explain;
+        this.entries = new SlowQuery[capacity];
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(EXPLAIN_QUEUE_SIZE), task -> {
+                    Thread thread = new Thread(task, "slow-query-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (task, executor) -> skippedPlans.increment());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Метод проверки, является ли запрос медленным
+     *
+     * @param nanos время выполнения в наносекундах
+     * @return true, если журнал включен и время не меньше порога
+     */
+    boolean isSlow(long nanos) {
+        return enabled && nanos >= thresholdNanos;
+    }
+
+    /**
+     * Метод записи медленного запроса в журнал
+     *
+     * @param sql        текст запроса
+     * @param parameters значения параметров по порядку, для плана запроса
+     * @param rows       количество прочитанных или измененных строк, -1 если неизвестно
+     * @param nanos      время выполнения в наносекундах
+     * @param request    HTTP-запрос, в котором выполнялся SQL-запрос, или null
+     * @param dataSource источник соединений для построения плана или null, если план не нужен
+     */
+    void capture(String sql, Object[] parameters, long rows, long nanos, String request, DataSource dataSource) {
+        SlowQuery query = new SlowQuery(Instant.now(), sql, describe(parameters), rows, nanos, request);
+        log.warn("Медленный SQL-запрос {} мс, строк {}{}: {}, параметры {}",
+                String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0), rows,
+                request == null ? "" : ", " + request, sql, query.parameters);
+        synchronized (entries) {
+            entries[(int) (captured++ % entries.length)] = query;
+        }
+        if (explain && dataSource != null && sql != null) {
+            explainExecutor.execute(() -> query.plan = explain(dataSource, sql, parameters));
+        }
+    }
+
+    private static String explain(DataSource dataSource, String sql, Object[] parameters) {
+        String statement = sql.stripLeading();
+        String prefix = statement.regionMatches(true, 0, "SELECT", 0, 6)
+                || statement.regionMatches(true, 0, "WITH", 0, 4) ? "EXPLAIN ANALYZE " : "EXPLAIN ";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explainStatement = connection.prepareStatement(prefix + statement)) {
+            for (int i = 0; i < parameters.length; i++) {
+                explainStatement.setObject(i + 1, parameters[i]);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet resultSet = explainStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    if (plan.length() > 0) {
+                        plan.append('\n');
+                    }
+                    plan.append(resultSet.getString(1));
+                }
+            }
+            log.debug("План медленного SQL-запроса {}:\n{}", sql, plan);
+            return plan.toString();
+        } catch (SQLException e) {
+            log.debug("Не удалось построить план SQL-запроса {}", sql, e);
+            return "План не построен: " + e.getMessage();
+        }
+    }
+
+    private static List<String> describe(Object[] parameters) {
+        List<String> values = new ArrayList<>(Math.min(parameters.length, MAX_PARAMETERS + 1));
+        for (int i = 0; i < parameters.length && i < MAX_PARAMETERS; i++) {
+            String value = String.valueOf(parameters[i]);
+            values.add(value.length() > MAX_PARAMETER_LENGTH ? value.substring(0, MAX_PARAMETER_LENGTH) + "..."
+                    : value);
+        }
+        if (parameters.length > MAX_PARAMETERS) {
+            values.add("... еще " + (parameters.length - MAX_PARAMETERS));
+        }
+        return values;
+    }
+
+    /**
+     * Метод получения последних медленных запросов, начиная с самого нового
+     *
+     * @return записи журнала в виде, пригодном для вывода в JSON
+     */
+    public List<Map<String, Object>> getQueries() {
+        List<SlowQuery> queries = new ArrayList<>(entries.length);
+        synchronized (entries) {
+            for (long i = captured - 1; i >= 0 && i >= captured - entries.length; i--) {
+                queries.add(entries[(int) (i % entries.length)]);
+            }
+        }
+        List<Map<String, Object>> result = new ArrayList<>(queries.size());
+        queries.forEach(query -> result.add(query.snapshot()));
+        return result;
+    }
+
+    @Override
+    public String getName() {
+        return "slow-queries";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long total;
+        synchronized (entries) {
+            total = captured;
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("thresholdMs", TimeUnit.NANOSECONDS.toMillis(thresholdNanos));
+        metrics.put("capacity", entries.length);
+        metrics.put("captured", total);
+        metrics.put("skippedPlans", skippedPlans.sum());
+        metrics.put("queries", getQueries());
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        explainExecutor.shutdownNow();
+    }
+
+    /**
+     * Класс записи журнала. План заполняется потоком построения планов после записи
+     */
+    private static final class SlowQuery {
+        private final Instant time;
+        private final String sql;
+        private final List<String> parameters;
+        private final long rows;
+        private final long nanos;
+        private final String request;
+        private volatile String plan;
+
+        private SlowQuery(Instant time, String sql, List<String> parameters, long rows, long nanos,
+                          String request) {
+            this.time = time;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.rows = rows;
+            this.nanos = nanos;
+            this.request = request;
+        }
+
+        private Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("time", time.toString());
+            snapshot.put("elapsedMs", nanos / 1_000_000.0);
+            snapshot.put("rows", rows);
+            snapshot.put("request", request);
+            snapshot.put("sql", sql);
+            snapshot.put("parameters", parameters);
+            snapshot.put("plan", plan);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Класс метрик SQL-запросов по HTTP-запросам: сколько запросов к базе данных выполнил
+ * каждый HTTP-запрос и сколько времени они заняли. Итоги запроса отдаются в заголовках ответа
+ * X-Sql-Statements и X-Sql-Time-Micros, которые выставляются перед записью тела ответа,
+ * поэтому запросы, выполненные во время записи потоковой выгрузки, в заголовки не попадают.
+ * Рост количества запросов вместе с размером ответа указывает на проблему N+1
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class SqlStatementMetrics implements MetricsSource, Filter {
+    /**
+     * Поле заголовок ответа с количеством SQL-запросов
+     */
+    public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    /**
+     * Поле заголовок ответа с суммарным временем SQL-запросов в микросекундах
+     */
+    public static final String TIME_HEADER = "X-Sql-Time-Micros";
+
+    /**
+     * Поле признак подсчета запросов
+     */
+    private final boolean enabled;
+    /**
+     * Поле журнал медленных запросов, который ведется тем же оборачиванием источника соединений
+     */
+    private final SlowQueryLog slowQueryLog;
+    /**
+     * Поле итоги HTTP-запроса, который выполняется в текущем потоке
+     */
+    private final ThreadLocal<RequestStatements> current = new ThreadLocal<>();
+    /**
+     * Поле получатели итогов завершенных HTTP-запросов
+     */
+    private final List<Consumer<RequestStatements>> listeners = new CopyOnWriteArrayList<>();
+    /**
+     * Поле гистограмма суммарного времени SQL-запросов одного HTTP-запроса
+     */
+    private final LatencyHistogram requestTime = new LatencyHistogram();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder requestStatements = new LongAdder();
+    private final LongAccumulator maxRequestStatements = new LongAccumulator(Long::max, 0);
+    /**
+     * Поле количество запросов вне HTTP-запросов: миграции, загрузка рейтинга при старте
+     */
+    private final LongAdder otherStatements = new LongAdder();
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param enabled      - считать ли SQL-запросы
+     * @param slowQueryLog - журнал медленных запросов
+     */
+    public SqlStatementMetrics(@Value("${filmorate.sql.statistics.enabled:true}") boolean enabled,
+                               SlowQueryLog slowQueryLog) {
+        this.enabled = enabled;
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    /**
+     * Метод оборачивания источника соединений для подсчета запросов и журнала медленных запросов
+     *
+     * @param dataSource источник соединений
+     * @return источник соединений, запросы которого учитываются, или исходный, если подсчет и журнал выключены
+     */
+    public DataSource wrap(DataSource dataSource) {
+        if (!enabled && !slowQueryLog.isEnabled() || dataSource instanceof InstrumentedDataSource) {
+            return dataSource;
+        }
+        return new InstrumentedDataSource(dataSource, this, slowQueryLog);
+    }
+
+    /**
+     * Метод учета выполненного SQL-запроса
+     *
+     * @param nanos время выполнения в наносекундах
+     */
+    void record(long nanos) {
+        if (!enabled) {
+            return;
+        }
+        RequestStatements statements = current.get();
+        if (statements == null) {
+            otherStatements.increment();
+            return;
+        }
+        statements.statements++;
+        statements.nanos += nanos;
+    }
+
+    /**
+     * Метод получения количества SQL-запросов, выполненных вне HTTP-запросов
+     *
+     * @return количество запросов с момента создания метрик
+     */
+    public long getOtherStatements() {
+        return otherStatements.sum();
+    }
+
+    /**
+     * Метод добавления получателя итогов каждого завершенного HTTP-запроса.
+     * Получатель вызывается в потоке запроса
+     *
+     * @param listener получатель итогов
+     */
+    public void addListener(Consumer<RequestStatements> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Метод удаления получателя итогов
+     *
+     * @param listener получатель итогов
+     */
+    public void removeListener(Consumer<RequestStatements> listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!enabled || current.get() != null || !(request instanceof HttpServletRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        RequestStatements statements = new RequestStatements(httpRequest.getMethod(), httpRequest.getRequestURI());
+        HeaderWritingResponse headerWritingResponse =
+                new HeaderWritingResponse((HttpServletResponse) response, statements);
+        current.set(statements);
+        try {
+            chain.doFilter(request, headerWritingResponse);
+        } finally {
+            current.remove();
+            // Ответ без тела еще не отправлен, и заголовки получают окончательные значения
+            headerWritingResponse.writeHeaders();
+            requests.increment();
+            requestStatements.add(statements.statements);
+            maxRequestStatements.accumulate(statements.statements);
+            requestTime.record(statements.nanos);
+            listeners.forEach(listener -> listener.accept(statements));
+        }
+    }
+
+    /**
+     * Метод получения HTTP-запроса, который выполняется в текущем потоке
+     *
+     * @return метод и адрес запроса или null вне HTTP-запроса
+     */
+    String currentRequest() {
+        RequestStatements statements = current.get();
+        return statements == null ? null : statements.method + " " + statements.uri;
+    }
+
+    @Override
+    public String getName() {
+        return "sql";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long requestCount = requests.sum();
+        long statementCount = requestStatements.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("requests", requestCount);
+        metrics.put("statements", statementCount);
+        metrics.put("statementsPerRequest", requestCount == 0 ? 0.0 : (double) statementCount / requestCount);
+        metrics.put("maxStatementsPerRequest", maxRequestStatements.get());
+        metrics.put("otherStatements", otherStatements.sum());
+        metrics.put("requestTime", requestTime.snapshot());
+        return metrics;
+    }
+
+    /**
+     * Класс итогов SQL-запросов одного HTTP-запроса. Изменяется только в потоке запроса
+     */
+    public static final class RequestStatements {
+        private final String method;
+        private final String uri;
+        private int statements;
+        private long nanos;
+
+        private RequestStatements(String method, String uri) {
+            this.method = method;
+            this.uri = uri;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public int getStatements() {
+            return statements;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + uri + ": " + statements + " SQL-запросов за "
+                    + TimeUnit.NANOSECONDS.toMicros(nanos) + " мкс";
+        }
+    }
+
+    /**
+     * Класс ответа, который выставляет заголовки с итогами перед началом записи тела
+     */
+    private static final class HeaderWritingResponse extends HttpServletResponseWrapper {
+        private final RequestStatements statements;
+
+        private HeaderWritingResponse(HttpServletResponse response, RequestStatements statements) {
+            super(response);
+            this.statements = statements;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        private void writeHeaders() {
+            if (!isCommitted()) {
+                setHeader(STATEMENTS_HEADER, String.valueOf(statements.statements));
+                setHeader(TIME_HEADER, String.valueOf(TimeUnit.NANOSECONDS.toMicros(statements.nanos)));
+            }
+        }
+    }
+}
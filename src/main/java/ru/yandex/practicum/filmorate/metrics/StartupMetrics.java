@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Класс метрик запуска приложения: время от старта JVM до готовности приложения
+ * и до завершения первого обработанного запроса. Время первого запроса включает
+ * бины, создание которых отложено ленивой инициализацией
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Slf4j
+@Lazy(false)
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StartupMetrics implements MetricsSource, Filter {
+    /**
+     * Поле окружение приложения
+     */
+    private final Environment environment;
+    /**
+     * Поле время от старта JVM до готовности приложения в миллисекундах, -1 пока приложение не готово
+     */
+    private volatile long readyMs = -1;
+    /**
+     * Поле время от старта JVM до завершения первого запроса в миллисекундах, -1 пока запросов не было
+     */
+    private volatile long firstRequestMs = -1;
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param environment - окружение приложения
+     */
+    public StartupMetrics(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Метод записи времени готовности приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        readyMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        log.info("Приложение готово через " + readyMs + " мс после старта JVM");
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (firstRequestMs < 0) {
+                recordFirstRequest();
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "startup";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("readyMs", readyMs);
+        metrics.put("firstRequestMs", firstRequestMs);
+        metrics.put("lazyInitialization",
+                environment.getProperty("spring.main.lazy-initialization", Boolean.class, false));
+        metrics.put("profiles", Arrays.asList(environment.getActiveProfiles()));
+        metrics.put("classDataSharing", ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .anyMatch(argument -> argument.startsWith("-XX:SharedArchiveFile")));
+        return metrics;
+    }
+
+    private synchronized void recordFirstRequest() {
+        if (firstRequestMs < 0) {
+            firstRequestMs = ManagementFactory.getRuntimeMXBean().getUptime();
+            log.info("Первый запрос обработан через " + firstRequestMs + " мс после старта JVM");
+        }
+    }
+}
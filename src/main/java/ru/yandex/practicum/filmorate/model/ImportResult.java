@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+/**
+ * Класс результата импорта одной строки пакетной загрузки со свойствами <b>row</b>, <b>id</b> и <b>error</b>
+ *
+ * @version 1.0
+ * @autor Светлана Ибраева
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportResult {
+    /**
+     * Поле номер строки во входных данных (начиная с 1)
+     */
+    private final long row;
+    /**
+     * Поле идентификатор созданного объекта
+     */
+    private final Long id;
+    /**
+     * Поле причина, по которой строка не была загружена
+     */
+    private final String error;
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param row   - номер строки
+     * @param id    - идентификатор созданного объекта
+     * @param error - причина ошибки
+     */
+    private ImportResult(long row, Long id, String error) {
+        this.row = row;
+        this.id = id;
+        this.error = error;
+    }
+
+    /**
+     * Метод создания результата успешно загруженной строки
+     *
+     * @param row - номер строки
+     * @param id  - идентификатор созданного объекта
+     * @return результат импорта строки
+     */
+    public static ImportResult created(long row, Long id) {
+        return new ImportResult(row, id, null);
+    }
+
+    /**
+     * Метод создания результата строки, загрузка которой завершилась ошибкой
+     *
+     * @param row   - номер строки
+     * @param error - причина ошибки
+     * @return результат импорта строки
+     */
+    public static ImportResult failed(long row, String error) {
+        return new ImportResult(row, null, error);
+    }
+}
@@ -0,0 +1,232 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Класс потоковой пакетной загрузки объектов.
+ * Входные данные - JSON-массив или NDJSON (по объекту в строке) - читаются по одному объекту,
+ * не загружая тело запроса в память целиком. Прошедшие проверку объекты сохраняются пакетами,
+ * а результат по каждой строке сразу записывается в ответ в формате NDJSON.
+ * Результат содержит номер строки, поэтому ошибки проверки могут прийти раньше результатов
+ * строк того же пакета, которые еще ждут записи
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class BulkImporter {
+    /**
+     * Поле тип содержимого NDJSON
+     */
+    public static final String NDJSON = "application/x-ndjson";
+    /**
+     * Поле преобразователь JSON
+     */
+    private final ObjectMapper objectMapper;
+    /**
+     * Поле запись результатов без сброса потока после каждой строки
+     */
+    private final ObjectWriter resultWriter;
+    /**
+     * Поле количество объектов в одном пакете записи
+     */
+    private final int batchSize;
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param objectMapper - преобразователь JSON
+     * @param batchSize    - количество объектов в одном пакете записи
+     */
+    public BulkImporter(ObjectMapper objectMapper,
+                        @Value("${filmorate.bulk.batch-size:1000}") int batchSize) {
+        this.objectMapper = objectMapper;
+        this.resultWriter = objectMapper.writerFor(ImportResult.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Метод пакетной загрузки объектов
+     *
+     * @param body    - входные данные: JSON-массив или NDJSON
+     * @param out     - поток, в который пишутся результаты по строкам в формате NDJSON
+     * @param type    - класс загружаемых объектов
+     * @param checker - проверка объекта, выбрасывает {@link ValidationException}, если объект не подходит
+     * @param writer  - сохранение пакета объектов, возвращает их идентификаторы в том же порядке
+     * @param <T>     - тип загружаемых объектов
+     * @throws IOException при ошибке чтения входных данных или записи результатов
+     */
+    public <T> void importRows(InputStream body, OutputStream out, Class<T> type,
+                               Consumer<T> checker, Function<List<T>, List<Long>> writer) throws IOException {
+        importRows(body, out, type, checker, batch -> Map.of(), writer);
+    }
+
+    /**
+     * Метод пакетной загрузки объектов с проверкой каждого пакета перед записью, например
+     * уникальности полей одним запросом к хранилищу. Отклоненные строки пакета не записываются,
+     * остальные записываются без них
+     *
+     * @param body         - входные данные: JSON-массив или NDJSON
+     * @param out          - поток, в который пишутся результаты по строкам в формате NDJSON
+     * @param type         - класс загружаемых объектов
+     * @param checker      - проверка объекта, выбрасывает {@link ValidationException}, если объект не подходит
+     * @param batchChecker - проверка пакета, возвращает сообщения об ошибке по номеру объекта в пакете
+     * @param writer       - сохранение пакета объектов, возвращает их идентификаторы в том же порядке
+     * @param <T>          - тип загружаемых объектов
+     * @throws IOException при ошибке чтения входных данных или записи результатов
+     */
+    public <T> void importRows(InputStream body, OutputStream out, Class<T> type, Consumer<T> checker,
+                               Function<List<T>, Map<Integer, String>> batchChecker,
+                               Function<List<T>, List<Long>> writer) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        // Строки результата разделяются переводом строки, а не пробелом по умолчанию
+        generator.setRootValueSeparator(null);
+        List<T> batch = new ArrayList<>(batchSize);
+        List<Long> batchRows = new ArrayList<>(batchSize);
+        long row = 0;
+        long created = 0;
+        try (MappingIterator<T> iterator = objectMapper.readerFor(type).readValues(body)) {
+            while (true) {
+                T value;
+                long next = row + 1;
+                try {
+                    if (!iterator.hasNextValue()) {
+                        break;
+                    }
+                    row = next;
+                    value = iterator.nextValue();
+                } catch (JsonMappingException e) {
+                    // Строка синтаксически корректна, но не подходит под объект - пропускаем только ее
+                    row = next;
+                    writeResult(generator, ImportResult.failed(row, "Некорректные данные: " + e.getOriginalMessage()));
+                    continue;
+                } catch (JsonProcessingException e) {
+                    // После синтаксической ошибки продолжить разбор нельзя
+                    writeResult(generator, ImportResult.failed(next, "Некорректный JSON: " + e.getOriginalMessage()));
+                    break;
+                }
+                try {
+                    checker.accept(value);
+                } catch (ValidationException | NotFoundException e) {
+                    writeResult(generator, ImportResult.failed(row, e.getMessage()));
+                    continue;
+                }
+                batch.add(value);
+                batchRows.add(row);
+                if (batch.size() == batchSize) {
+                    created += checkAndWriteBatch(generator, batch, batchRows, batchChecker, writer);
+                }
+            }
+            created += checkAndWriteBatch(generator, batch, batchRows, batchChecker, writer);
+        } finally {
+            generator.flush();
+        }
+        log.info("Пакетная загрузка {}: обработано строк {}, сохранено {}", type.getSimpleName(), row, created);
+    }
+
+    /**
+     * Метод проверки и сохранения накопленного пакета: отклоненные проверкой пакета строки
+     * сразу получают ошибку, остальные сохраняются
+     *
+     * @return количество сохраненных объектов
+     */
+    private <T> int checkAndWriteBatch(JsonGenerator generator, List<T> batch, List<Long> batchRows,
+                                       Function<List<T>, Map<Integer, String>> batchChecker,
+                                       Function<List<T>, List<Long>> writer) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Map<Integer, String> rejected = batchChecker.apply(batch);
+        if (rejected.isEmpty()) {
+            return writeBatch(generator, batch, batchRows, writer);
+        }
+        List<T> accepted = new ArrayList<>(batch.size());
+        List<Long> acceptedRows = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            String error = rejected.get(i);
+            if (error == null) {
+                accepted.add(batch.get(i));
+                acceptedRows.add(batchRows.get(i));
+            } else {
+                writeResult(generator, ImportResult.failed(batchRows.get(i), error));
+            }
+        }
+        batch.clear();
+        batchRows.clear();
+        return writeBatch(generator, accepted, acceptedRows, writer);
+    }
+
+    /**
+     * Метод сохранения накопленного пакета. Если пакет целиком сохранить не удалось,
+     * строки сохраняются по одной, чтобы ошибка была привязана к конкретной строке
+     *
+     * @return количество сохраненных объектов
+     */
+    private <T> int writeBatch(JsonGenerator generator, List<T> batch, List<Long> batchRows,
+                               Function<List<T>, List<Long>> writer) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int created = 0;
+        try {
+            List<Long> ids = writer.apply(batch);
+            for (int i = 0; i < ids.size(); i++) {
+                writeResult(generator, ImportResult.created(batchRows.get(i), ids.get(i)));
+            }
+            created = ids.size();
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                log.warn("Не удалось сохранить строку {}", batchRows.get(0), e);
+                writeResult(generator, ImportResult.failed(batchRows.get(0), errorMessage(e)));
+            } else {
+                for (int i = 0; i < batch.size(); i++) {
+                    created += writeBatch(generator, new ArrayList<>(List.of(batch.get(i))),
+                            new ArrayList<>(List.of(batchRows.get(i))), writer);
+                }
+            }
+        }
+        batch.clear();
+        batchRows.clear();
+        generator.flush();
+        return created;
+    }
+
+    private void writeResult(JsonGenerator generator, ImportResult result) throws IOException {
+        resultWriter.writeValue(generator, result);
+        generator.writeRaw('\n');
+    }
+
+    private String errorMessage(RuntimeException e) {
+        if (e instanceof ValidationException || e instanceof NotFoundException) {
+            return e.getMessage();
+        }
+        if (e instanceof DuplicateKeyException) {
+            return "Запись с такими уникальными полями уже существует";
+        }
+        return "Не удалось сохранить строку";
+    }
+}
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.metrics.MetricsSource;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Класс кэша фильмов с заполненными жанрами, рейтингом и лайками.
+ * Вес фильма - единица плюс количество жанров: лайки в вес не входят, иначе самые популярные,
+ * то есть самые читаемые фильмы не помещались бы в кэш. Лайк и отмена лайка удаляют фильм из кэша:
+ * уведомления о них приходят после фиксации в порядке потоков, а добавление и удаление лайка
+ * в множестве не перестановочны, поэтому изменение на месте могло бы оставить в кэше отмененный лайк
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Component
+public class FilmCache implements MetricsSource {
+    /**
+     * Поле записи кэша, фильмы в них не изменяются
+     */
+    private final SegmentedCache<Long, Film> cache;
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param ttlMs     - время жизни записи в миллисекундах
+     * @param maxWeight - максимальный суммарный вес фильмов в кэше
+     */
+    public FilmCache(@Value("${filmorate.cache.films.ttl-ms:60000}") long ttlMs,
+                     @Value("${filmorate.cache.films.max-weight:100000}") long maxWeight) {
+        this.cache = new SegmentedCache<>(ttlMs, maxWeight, film -> 1L + film.getGenres().size());
+    }
+
+    /**
+     * Метод получения фильма из кэша
+     *
+     * @param id идентификатор фильма
+     * @return копия фильма или null, если фильма нет в кэше или запись устарела
+     */
+    public Film get(Long id) {
+        Film film = cache.get(id);
+        return film == null ? null : copy(film);
+    }
+
+    /**
+     * Метод проверки наличия фильма в кэше без учета в попаданиях и промахах
+     *
+     * @param id идентификатор фильма
+     * @return true, если фильм есть в кэше
+     */
+    public boolean contains(Long id) {
+        return cache.contains(id);
+    }
+
+    /**
+     * Метод получения версии фильма перед его загрузкой из хранилища
+     *
+     * @param id идентификатор фильма
+     * @return версия, которую нужно передать в {@link #put(Film, long)}
+     */
+    public long stamp(Long id) {
+        return cache.stamp(id);
+    }
+
+    /**
+     * Метод помещения фильма в кэш. Фильм не кэшируется, если после получения версии
+     * он был изменен - загруженные данные могли устареть.
+     * Фильм, прочитанный внутри транзакции, удаляется из кэша при ее откате
+     *
+     * @param film  {@link Film}
+     * @param stamp версия, полученная методом {@link #stamp(Long)} до загрузки фильма
+     */
+    public void put(Film film, long stamp) {
+        cache.put(film.getId(), copy(film), stamp);
+    }
+
+    /**
+     * Метод удаления фильма из кэша после его изменения.
+     * Внутри транзакции фильм удаляется повторно после ее завершения,
+     * чтобы в кэш не попала версия, прочитанная до фиксации изменений
+     *
+     * @param id идентификатор фильма
+     */
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * Метод очищения кэша
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public String getName() {
+        return "film-cache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        return cache.metrics();
+    }
+
+    private static Film copy(Film film) {
+        Mpa mpa = null;
+        if (film.getMpa() != null) {
+            mpa = new Mpa();
+            mpa.setId(film.getMpa().getId());
+            mpa.setName(film.getMpa().getName());
+            mpa.setDescription(film.getMpa().getDescription());
+        }
+        Film copy = new Film(film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), mpa);
+        copy.setId(film.getId());
+        if (film.getLikes() != null) {
+            copy.setLikes(new HashSet<>(film.getLikes()));
+        }
+        if (film.getGenres() != null) {
+            Set<Genre> genres = new HashSet<>();
+            film.getGenres().forEach(genre -> genres.add(new Genre(genre.getId(), genre.getName())));
+            copy.setGenres(genres);
+        }
+        return copy;
+    }
+}
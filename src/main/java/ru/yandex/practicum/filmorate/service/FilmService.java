@@ -2,7 +2,9 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
@@ -13,8 +15,10 @@ import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.rating.MpaStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 import ru.yandex.practicum.filmorate.validator.FilmValidator;
+import ru.yandex.practicum.filmorate.validator.PageValidator;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Класс сервиса для работы с хранилищем фильмов
@@ -41,7 +45,22 @@ public class FilmService {
      * Поле хранилище жанров
      */
     private final GenreStorage genreStorage;
+    /**
+     * Поле хранилище рейтингов
+     */
     private final MpaStorage mpaStorage;
+    /**
+     * Поле рейтинг популярных фильмов
+     */
+    private final PopularFilmsLeaderboard leaderboard;
+    /**
+     * Поле кэш фильмов
+     */
+    private final FilmCache cache;
+    /**
+     * Поле валидатор параметров страницы
+     */
+    private final PageValidator pageValidator;
 
     /**
      * Конструктор - создание нового объекта с определенными значениями
@@ -51,16 +70,24 @@ public class FilmService {
      * @param validator    - валидатор фильмов
      * @param genreStorage - хранилище жанров
      * @param mpaStorage   - хранилище рейтингов
+     * @param leaderboard  - рейтинг популярных фильмов
+     * @param cache         - кэш фильмов
+     * @param pageValidator - валидатор параметров страницы
      */
     public FilmService(@Qualifier("filmDbStorage") FilmStorage storage,
                        @Qualifier("userDbStorage") UserStorage userStorage,
                        FilmValidator validator,
-                       GenreStorage genreStorage, MpaStorage mpaStorage) {
+                       GenreStorage genreStorage, MpaStorage mpaStorage,
+                       PopularFilmsLeaderboard leaderboard, FilmCache cache,
+                       PageValidator pageValidator) {
         this.storage = storage;
         this.userStorage = userStorage;
         this.validator = validator;
         this.genreStorage = genreStorage;
         this.mpaStorage = mpaStorage;
+        this.leaderboard = leaderboard;
+        this.cache = cache;
+        this.pageValidator = pageValidator;
     }
 
     /**
@@ -70,10 +97,32 @@ public class FilmService {
      */
     public List<Film> findAllFilms() {
         List<Film> films = storage.findAllFilms();
-        films.forEach(this::loadGenresMpaAndLikes);
+        loadGenresAndLikes(films);
         return films;
     }
 
+    /**
+     * Метод получения страницы фильмов из хранилища по курсору
+     *
+     * @param after идентификатор последнего фильма предыдущей страницы (null - с начала)
+     * @param limit размер страницы (null - размер по умолчанию)
+     * @return фильмы с идентификатором больше after, упорядоченные по идентификатору
+     */
+    public List<Film> findFilms(Long after, Integer limit) {
+        List<Film> films = storage.findFilms(after, pageValidator.validate(after, limit));
+        loadGenresAndLikes(films);
+        return films;
+    }
+
+    /**
+     * Метод потоковой выгрузки всех фильмов из хранилища
+     *
+     * @param consumer обработчик фильмов
+     */
+    public void streamFilms(Consumer<Film> consumer) {
+        storage.streamFilms(consumer);
+    }
+
     /**
      * Метод добавления фильма в хранилище
      *
@@ -81,6 +130,7 @@ public class FilmService {
      * @return копию объекта film с добавленным id
      * @throws ValidationException если объект не прошел валидацию
      */
+    @Transactional
     public Film createFilm(Film film) {
         if (film.getId() == null) {
             film.setId(0L);
@@ -94,6 +144,7 @@ public class FilmService {
         validator.validate(film);
         Set<Genre> genres = film.getGenres();
         film = storage.createFilm(film);
+        leaderboard.addFilm(film.getId());
         if (!genres.isEmpty()) {
             genreStorage.addGenresToFilm(film);
         }
@@ -102,12 +153,59 @@ public class FilmService {
         return film;
     }
 
+    /**
+     * Метод проверки фильма перед пакетной загрузкой: кроме валидации полей проверяется,
+     * что у фильма нет идентификатора, а рейтинг и жанры есть в справочниках
+     *
+     * @param film {@link Film}
+     * @throws ValidationException если фильм не может быть добавлен
+     */
+    public void validateNewFilm(Film film) {
+        validator.validate(film);
+        if (film.getId() != null && film.getId() > 0) {
+            throw new ValidationException("Фильм не должен иметь идентификатора " +
+                    "(при создании генерируется автоматически)");
+        }
+        if (film.getMpa() == null || film.getMpa().getId() == null
+                || mpaStorage.findMpaById(film.getMpa().getId()) == null) {
+            throw new ValidationException("Рейтинг фильма не указан или не найден");
+        }
+        if (film.getGenres() == null) {
+            film.setGenres(new HashSet<>());
+        }
+        for (Genre genre : film.getGenres()) {
+            if (genre == null || genre.getId() == null || genreStorage.findGenreById(genre.getId()) == null) {
+                throw new ValidationException("Жанр фильма не указан или не найден");
+            }
+        }
+    }
+
+    /**
+     * Метод пакетного добавления проверенных фильмов в хранилище сервиса.
+     * Фильмы и их жанры записываются пакетами в одной транзакции
+     *
+     * @param films список фильмов, прошедших {@link #validateNewFilm(Film)}
+     * @return идентификаторы добавленных фильмов в порядке списка
+     */
+    @Transactional
+    public List<Long> createFilms(List<Film> films) {
+        storage.createFilms(films);
+        genreStorage.addGenresToFilms(films);
+        List<Long> ids = new ArrayList<>(films.size());
+        for (Film film : films) {
+            leaderboard.addFilm(film.getId());
+            ids.add(film.getId());
+        }
+        return ids;
+    }
+
     /**
      * Метод обновления фильма в хранилище сервиса
      *
      * @param film {@link Film}
      * @return копию объекта film с обновленными полями
      */
+    @Transactional
     public Film updateFilm(Film film) {
         if (film.getId() == null) {
             throw new ValidationException("У фильма не хватает идентификатора для обновления");
@@ -117,6 +215,7 @@ public class FilmService {
         validator.validate(film);
         genreStorage.updateGenresByFilm(film);
         film = storage.updateFilm(film);
+        cache.invalidate(film.getId());
         loadGenresMpaAndLikes(film);
         log.info("Обновлен фильм: " + film);
         return film;
@@ -127,6 +226,8 @@ public class FilmService {
      */
     public void deleteAllFilms() {
         storage.deleteAllFilms();
+        leaderboard.clear();
+        cache.clear();
     }
 
     /**
@@ -136,11 +237,17 @@ public class FilmService {
      * @return копию объекта film с указанным идентификатором
      */
     public Film getFilmById(Long id) {
-        Film film = storage.getFilmById(id);
+        Film film = cache.get(id);
+        if (film != null) {
+            return film;
+        }
+        long stamp = cache.stamp(id);
+        film = storage.getFilmById(id);
         if (film == null) {
             throw new NotFoundException("Фильм с идентификатором " + id + " не найден");
         }
         loadGenresMpaAndLikes(film);
+        cache.put(film, stamp);
         return film;
     }
 
@@ -152,18 +259,26 @@ public class FilmService {
      *               который ставит лайк {@link ru.yandex.practicum.filmorate.model.User}
      */
     public void addLikeToFilm(Long idFilm, Long idUser) {
-        checkUserId(idUser);
-        checkFilmId(idFilm);
-        // Если пользователь уже ставил лайк
-        if (storage.checkLike(idFilm, idUser)) {
+        boolean added;
+        try {
+            added = storage.addLikeToFilm(idFilm, idUser);
+        } catch (DataIntegrityViolationException e) {
+            // Повторный лайк хранилище уже считает неизменившим данные, остается нарушение
+            // внешнего ключа: фильм или пользователь удалены параллельно с добавлением лайка
+            checkUserId(idUser);
+            checkFilmId(idFilm);
+            throw e;
+        }
+        if (!added) {
+            // Лайк не добавлен: либо он уже есть, либо нет фильма или пользователя
+            checkUserId(idUser);
+            checkFilmId(idFilm);
             log.warn("Пользователь " + idUser + " уже поставил лайк фильму " + idFilm);
             return;
         }
-        // Если пользователь еще не ставил лайк
-        if (!storage.checkLike(idFilm, idUser)) {
-            storage.addLikeToFilm(idFilm, idUser);
-            log.info("Пользователь " + idUser + " поставил лайк фильму " + idFilm);
-        }
+        leaderboard.addLike(idFilm);
+        cache.invalidate(idFilm);
+        log.info("Пользователь " + idUser + " поставил лайк фильму " + idFilm);
     }
 
     /**
@@ -174,32 +289,76 @@ public class FilmService {
      *               который удаляет лайк {@link ru.yandex.practicum.filmorate.model.User}
      */
     public void deleteLikeFromFilm(Long idFilm, Long idUser) {
-        checkUserId(idUser);
-        checkFilmId(idFilm);
-        // Если пользователь еще не ставил лайк
-        if (!storage.checkLike(idFilm, idUser)) {
+        if (!storage.deleteLikeFromFilm(idFilm, idUser)) {
+            // Лайк не удален: либо его не было, либо нет фильма или пользователя
+            checkUserId(idUser);
+            checkFilmId(idFilm);
             log.warn("Пользователь " + idUser + " уже не ставил лайк фильму " + idFilm);
             return;
         }
-        // Если пользватель уже ставил лайк
-        if (storage.checkLike(idFilm, idUser)) {
-            storage.deleteLikeFromFilm(idFilm, idUser);
-            log.info("Пользователь " + idUser + " отменил свой лайк фильму " + idFilm);
-        }
+        leaderboard.removeLike(idFilm);
+        cache.invalidate(idFilm);
+        log.info("Пользователь " + idUser + " отменил свой лайк фильму " + idFilm);
     }
 
     /**
-     * Метод получения списка самых популярных фильмов из хранилища сервиса
+     * Метод получения списка самых популярных фильмов из хранилища сервиса.
+     * Порядок фильмов берется из рейтинга в памяти, к хранилищу запрос идет только если
+     * рейтинг знает меньше фильмов, чем запрошено, или разошелся с хранилищем
      *
      * @param count количество первых по популярности фильмов в списке
      * @return список фильмов, сформированных по количеству лайков
      */
     public List<Film> getPopularFilm(Integer count) {
-        List<Film> films = storage.getPopularFilm(count);
-        films.forEach(this::loadGenresMpaAndLikes);
+        List<Film> films = null;
+        List<Long> ids = leaderboard.getTop(count);
+        if (count > 0 && ids.size() == count) {
+            films = getFilmsInOrder(ids);
+        }
+        if (films == null) {
+            films = storage.getPopularFilm(count);
+        }
+        loadGenresAndLikes(films);
         return films;
     }
 
+    /**
+     * Метод получения фильмов из хранилища в порядке списка идентификаторов
+     *
+     * @param ids идентификаторы фильмов
+     * @return список фильмов или null, если какого-то из фильмов нет в хранилище
+     */
+    private List<Film> getFilmsInOrder(List<Long> ids) {
+        Map<Long, Film> films = new HashMap<>();
+        storage.getFilmsByIds(ids).forEach(film -> films.put(film.getId(), film));
+        if (films.size() < ids.size()) {
+            return null;
+        }
+        List<Film> result = new ArrayList<>(ids.size());
+        ids.forEach(id -> result.add(films.get(id)));
+        return result;
+    }
+
+    /**
+     * Метод заполнения списков жанров и лайков для списка фильмов за фиксированное число запросов,
+     * рейтинг при этом уже загружен хранилищем вместе с фильмами
+     *
+     * @param films список фильмов {@link Film}
+     */
+    private void loadGenresAndLikes(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(films.size());
+        films.forEach(film -> ids.add(film.getId()));
+        Map<Long, Set<Genre>> genres = genreStorage.getGenresByFilms(ids);
+        Map<Long, Set<Long>> likes = storage.getLikesByFilms(ids);
+        for (Film film : films) {
+            film.setGenres(genres.getOrDefault(film.getId(), new HashSet<>()));
+            film.setLikes(likes.getOrDefault(film.getId(), new HashSet<>()));
+        }
+    }
+
     /**
      * Метод заполнения списков жанров и лайков фильма film
      *
@@ -217,6 +376,9 @@ public class FilmService {
      * @param id идентификатор фильма
      */
     private void checkFilmId(Long id) {
+        if (cache.contains(id)) {
+            return;
+        }
         Film film = storage.getFilmById(id);
         if (film == null) {
             throw new NotFoundException("Фильм с идентификатором " + id + " не найден");
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.metrics.MetricsSource;
+
+import java.util.Map;
+
+/**
+ * Класс кэша идентификаторов друзей пользователей.
+ * Друзья пользователя хранятся отсортированным массивом long, поэтому общие друзья
+ * находятся пересечением двух массивов без обращения к базе данных.
+ * Вес записи - единица плюс количество друзей
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Component
+public class FriendIdsCache implements MetricsSource {
+    /**
+     * Поле записи кэша, массивы в них не изменяются
+     */
+    private final SegmentedCache<Long, long[]> cache;
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param ttlMs     - время жизни записи в миллисекундах
+     * @param maxWeight - максимальное суммарное количество идентификаторов в кэше
+     */
+    public FriendIdsCache(@Value("${filmorate.cache.friends.ttl-ms:300000}") long ttlMs,
+                          @Value("${filmorate.cache.friends.max-weight:1000000}") long maxWeight) {
+        this.cache = new SegmentedCache<>(ttlMs, maxWeight, friendIds -> 1L + friendIds.length);
+    }
+
+    /**
+     * Метод получения идентификаторов друзей пользователя из кэша
+     *
+     * @param id идентификатор пользователя
+     * @return отсортированный массив идентификаторов друзей, который нельзя изменять,
+     * или null, если пользователя нет в кэше или запись устарела
+     */
+    public long[] get(Long id) {
+        return cache.get(id);
+    }
+
+    /**
+     * Метод получения версии записи перед загрузкой друзей из хранилища
+     *
+     * @param id идентификатор пользователя
+     * @return версия, которую нужно передать в {@link #put(Long, long[], long)}
+     */
+    public long stamp(Long id) {
+        return cache.stamp(id);
+    }
+
+    /**
+     * Метод помещения идентификаторов друзей в кэш. Запись не кэшируется, если после получения версии
+     * друзья пользователя изменились - загруженные данные могли устареть.
+     * Запись, прочитанная внутри транзакции, удаляется из кэша при ее откате
+     *
+     * @param id        идентификатор пользователя
+     * @param friendIds отсортированный массив идентификаторов друзей, который больше не изменяется
+     * @param stamp     версия, полученная методом {@link #stamp(Long)} до загрузки друзей
+     */
+    public void put(Long id, long[] friendIds, long stamp) {
+        cache.put(id, friendIds, stamp);
+    }
+
+    /**
+     * Метод удаления друзей пользователя из кэша после изменения дружбы.
+     * Внутри транзакции запись удаляется повторно после ее завершения,
+     * чтобы в кэш не попала версия, прочитанная до фиксации изменений
+     *
+     * @param id идентификатор пользователя
+     */
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * Метод очищения кэша
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public String getName() {
+        return "friend-ids-cache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        return cache.metrics();
+    }
+}
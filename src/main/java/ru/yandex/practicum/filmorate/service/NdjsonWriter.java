@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Класс потоковой записи объектов в формате NDJSON (по объекту в строке).
+ * Каждый объект пишется сразу по мере получения от источника, поэтому память
+ * не зависит от количества выгружаемых объектов
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Component
+public class NdjsonWriter {
+    /**
+     * Поле количество объектов, после записи которых поток сбрасывается клиенту
+     */
+    private static final int FLUSH_EVERY = 500;
+    /**
+     * Поле преобразователь JSON
+     */
+    private final ObjectMapper objectMapper;
+    /**
+     * Поле запись объектов без сброса потока после каждого объекта
+     */
+    private final ObjectWriter writer;
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param objectMapper - преобразователь JSON
+     */
+    public NdjsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Метод записи всех объектов источника в поток
+     *
+     * @param out    - поток, в который пишутся объекты
+     * @param type   - класс объектов
+     * @param source - источник, передающий объекты обработчику по одному
+     * @param <T>    - тип объектов
+     * @throws IOException при ошибке записи в поток
+     */
+    public <T> void write(OutputStream out, Class<T> type, Consumer<Consumer<T>> source) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        // Объекты разделяются переводом строки, а не пробелом по умолчанию
+        generator.setRootValueSeparator(null);
+        ObjectWriter typedWriter = writer.forType(type);
+        long[] written = {0};
+        try {
+            source.accept(value -> {
+                try {
+                    typedWriter.writeValue(generator, value);
+                    generator.writeRaw('\n');
+                    if (++written[0] % FLUSH_EVERY == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.flush();
+    }
+}
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikesRanking;
+
+import java.util.List;
+
+/**
+ * Класс рейтинга популярных фильмов в памяти приложения.
+ * Загружается из таблицы лайков при старте, до приема запросов, и дальше обновляется
+ * сервисом фильмов при каждом добавлении и удалении лайка.
+ * Изменения, сделанные внутри транзакции, откатываются вместе с ней
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Slf4j
+@Lazy(false)
+@Component
+public class PopularFilmsLeaderboard implements SmartInitializingSingleton {
+    /**
+     * Поле хранилище фильмов
+     */
+    private final FilmStorage storage;
+    /**
+     * Поле рейтинг фильмов по количеству лайков
+     */
+    private final LikesRanking ranking = new LikesRanking();
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param storage - хранилище фильмов
+     */
+    public PopularFilmsLeaderboard(@Qualifier("filmDbStorage") FilmStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Метод загрузки рейтинга из хранилища, вызывается после создания всех бинов
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+        log.info("Загружен рейтинг популярных фильмов: " + ranking.size() + " фильмов");
+    }
+
+    /**
+     * Метод получения первых по популярности фильмов
+     *
+     * @param count количество фильмов
+     * @return идентификаторы фильмов по убыванию количества лайков
+     */
+    public List<Long> getTop(int count) {
+        return ranking.top(count);
+    }
+
+    /**
+     * Метод добавления нового фильма без лайков
+     *
+     * @param filmId идентификатор фильма
+     */
+    public void addFilm(Long filmId) {
+        apply(() -> ranking.add(filmId, 0), () -> ranking.remove(filmId));
+    }
+
+    /**
+     * Метод учета добавленного лайка
+     *
+     * @param filmId идентификатор фильма
+     */
+    public void addLike(Long filmId) {
+        apply(() -> ranking.add(filmId, 1), () -> ranking.add(filmId, -1));
+    }
+
+    /**
+     * Метод учета удаленного лайка
+     *
+     * @param filmId идентификатор фильма
+     */
+    public void removeLike(Long filmId) {
+        apply(() -> ranking.add(filmId, -1), () -> ranking.add(filmId, 1));
+    }
+
+    /**
+     * Метод обнуления лайков всех фильмов (при удалении всех пользователей).
+     * Прежние количества лайков не запоминаются: при откате транзакции они перечитываются из хранилища
+     */
+    public void resetLikes() {
+        apply(ranking::resetLikes, this::reload);
+    }
+
+    /**
+     * Метод очищения рейтинга (при удалении всех фильмов)
+     */
+    public void clear() {
+        ranking.clear();
+    }
+
+    /**
+     * Метод записи в рейтинг количества лайков каждого фильма из хранилища
+     */
+    private void reload() {
+        storage.getLikesCountByFilms().forEach(ranking::put);
+    }
+
+    /**
+     * Метод применения изменения рейтинга с отменой при откате текущей транзакции
+     *
+     * @param change - изменение
+     * @param undo   - обратное изменение
+     */
+    private void apply(Runnable change, Runnable undo) {
+        change.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        undo.run();
+                    }
+                }
+            });
+        }
+    }
+}
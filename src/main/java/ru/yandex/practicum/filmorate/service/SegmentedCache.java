@@ -0,0 +1,325 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Класс кэша, разбитого на сегменты со своей блокировкой. Каждый сегмент вытесняет давно не читанные записи,
+ * когда суммарный вес его записей превышает свою долю максимального веса, и удаляет записи старше времени жизни.
+ * Значения хранятся как есть и не должны изменяться после помещения в кэш.
+ * <p>
+ * Загрузка из хранилища защищена версией ключа: {@link #stamp(Object)} регистрирует загрузку ключа,
+ * а инвалидация или изменение этого ключа меняют версию, и {@link #put(Object, Object, long)}
+ * отбрасывает загруженное до изменения значение. Изменения других ключей загрузку не отменяют.
+ * Запись тяжелее доли сегмента не кэшируется и учитывается в метрике oversized
+ *
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+final class SegmentedCache<K, V> {
+    /**
+     * Поле количество сегментов кэша
+     */
+    private static final int SEGMENT_COUNT = 16;
+    /**
+     * Поле максимальное количество загружаемых ключей в сегменте, с запасом на пакетную загрузку
+     * страницы пользователей. Загрузки, которые не завершились помещением в кэш, например из-за ошибки,
+     * вытесняются новыми, а их значения потом не кэшируются
+     */
+    private static final int MAX_LOADS_PER_SEGMENT = 4096;
+
+    private final Segment<K, V>[] segments;
+    /**
+     * Поле время жизни записи в наносекундах
+     */
+    private final long ttlNanos;
+    /**
+     * Поле максимальный суммарный вес записей в одном сегменте
+     */
+    private final long segmentMaxWeight;
+    /**
+     * Поле функция вычисления веса значения
+     */
+    private final ToLongFunction<V> weigher;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder oversized = new LongAdder();
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param ttlMs     - время жизни записи в миллисекундах
+     * @param maxWeight - максимальный суммарный вес записей в кэше
+     * @param weigher   - функция вычисления веса значения
+     */
+    @SuppressWarnings("unchecked")
+    SegmentedCache(long ttlMs, long maxWeight, ToLongFunction<V> weigher) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.segmentMaxWeight = Math.max(1, maxWeight / SEGMENT_COUNT);
+        this.weigher = weigher;
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    /**
+     * Метод получения значения из кэша с учетом попадания или промаха
+     *
+     * @param key ключ
+     * @return значение или null, если его нет в кэше или запись устарела
+     */
+    V get(K key) {
+        V value = lookup(key);
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Метод проверки наличия значения в кэше, не учитывается в попаданиях и промахах
+     *
+     * @param key ключ
+     * @return true, если в кэше есть действующая запись
+     */
+    boolean contains(K key) {
+        return lookup(key) != null;
+    }
+
+    /**
+     * Метод регистрации загрузки значения из хранилища
+     *
+     * @param key ключ
+     * @return версия ключа, которую нужно передать в {@link #put(Object, Object, long)}
+     */
+    long stamp(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Load load = segment.loads.get(key);
+            if (load == null) {
+                if (segment.loads.size() >= MAX_LOADS_PER_SEGMENT) {
+                    Iterator<Load> eldest = segment.loads.values().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+                load = new Load(++segment.clock);
+                segment.loads.put(key, load);
+            }
+            load.loaders++;
+            return load.version;
+        }
+    }
+
+    /**
+     * Метод помещения загруженного значения в кэш. Значение не кэшируется, если после получения версии
+     * ключ был инвалидирован или изменен. Значение, прочитанное внутри транзакции, удаляется из кэша
+     * при ее откате
+     *
+     * @param key   ключ
+     * @param value значение
+     * @param stamp версия, полученная методом {@link #stamp(Object)} до загрузки значения
+     */
+    void put(K key, V value, long stamp) {
+        long weight = weigher.applyAsLong(value);
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Load load = segment.loads.get(key);
+            if (load == null) {
+                return;
+            }
+            if (--load.loaders == 0) {
+                segment.loads.remove(key);
+            }
+            if (load.version != stamp) {
+                return;
+            }
+            if (weight > segmentMaxWeight) {
+                oversized.increment();
+                return;
+            }
+            segment.remove(key);
+            segment.entries.put(key, new Entry<>(value, weight, System.nanoTime()));
+            segment.weight += weight;
+            evict(segment);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        invalidate(key);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Метод удаления значения из кэша после изменения данных в хранилище.
+     * Внутри транзакции запись удаляется повторно после ее завершения,
+     * чтобы в кэш не попала версия, прочитанная до фиксации изменений
+     *
+     * @param key ключ
+     */
+    void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+            segment.changed(key);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    synchronized (segment) {
+                        segment.remove(key);
+                        segment.changed(key);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Метод очищения кэша, начатые загрузки после него не кэшируются
+     */
+    void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+                segment.loads.clear();
+                segment.weight = 0;
+            }
+        }
+    }
+
+    /**
+     * Метод получения метрик кэша
+     *
+     * @return размер, вес, попадания, промахи, вытеснения и некэшированные из-за веса записи
+     */
+    Map<String, Object> metrics() {
+        long size = 0;
+        long weight = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+                weight += segment.weight;
+            }
+        }
+        long hitCount = hits.sum();
+        long requests = hitCount + misses.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", size);
+        metrics.put("weight", weight);
+        metrics.put("maxWeight", segmentMaxWeight * SEGMENT_COUNT);
+        metrics.put("hits", hitCount);
+        metrics.put("misses", requests - hitCount);
+        metrics.put("hitRatio", requests == 0 ? 0.0 : (double) hitCount / requests);
+        metrics.put("evictions", evictions.sum());
+        metrics.put("oversized", oversized.sum());
+        return metrics;
+    }
+
+    private V lookup(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.createdAt > ttlNanos) {
+                segment.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    private void evict(Segment<K, V> segment) {
+        Iterator<Entry<V>> eldest = segment.entries.values().iterator();
+        while (segment.weight > segmentMaxWeight && eldest.hasNext()) {
+            segment.weight -= eldest.next().weight;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        return segments[(key.hashCode() & Integer.MAX_VALUE) % SEGMENT_COUNT];
+    }
+
+    /**
+     * Класс сегмента кэша, все поля читаются и изменяются под блокировкой сегмента
+     */
+    private static final class Segment<K, V> {
+        private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+        /**
+         * Поле загружаемые ключи в порядке начала загрузки
+         */
+        private final LinkedHashMap<K, Load> loads = new LinkedHashMap<>();
+        private long weight;
+        /**
+         * Поле счетчик версий ключей сегмента
+         */
+        private long clock;
+
+        private void remove(K key) {
+            Entry<V> entry = entries.remove(key);
+            if (entry != null) {
+                weight -= entry.weight;
+            }
+        }
+
+        /**
+         * Метод смены версии ключа, если он загружается
+         */
+        private void changed(K key) {
+            Load load = loads.get(key);
+            if (load != null) {
+                load.version = ++clock;
+            }
+        }
+    }
+
+    /**
+     * Класс загрузки ключа: текущая версия и количество незавершенных загрузок
+     */
+    private static final class Load {
+        private long version;
+        private int loaders;
+
+        private Load(long version) {
+            this.version = version;
+        }
+    }
+
+    /**
+     * Класс записи кэша
+     */
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+        private final long createdAt;
+
+        private Entry(V value, long weight, long createdAt) {
+            this.value = value;
+            this.weight = weight;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -3,14 +3,24 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipTransition;
+import ru.yandex.practicum.filmorate.storage.user.SortedLongArrays;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.validator.PageValidator;
 import ru.yandex.practicum.filmorate.validator.UserValidator;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Класс сервиса для работы с хранилищем пользователей
@@ -25,20 +35,53 @@ public class UserService {
      * Поле хранилище пользователей
      */
     private final UserStorage storage;
+    /**
+     * Поле хранилище фильмов, лайки которых удаляются вместе с пользователями
+     */
+    private final FilmStorage filmStorage;
     /**
      * Поле валидатор
      */
     private final UserValidator validator;
+    /**
+     * Поле рейтинг популярных фильмов
+     */
+    private final PopularFilmsLeaderboard leaderboard;
+    /**
+     * Поле кэш фильмов
+     */
+    private final FilmCache filmCache;
+    /**
+     * Поле валидатор параметров страницы
+     */
+    private final PageValidator pageValidator;
+    /**
+     * Поле кэш идентификаторов друзей
+     */
+    private final FriendIdsCache friendIdsCache;
 
     /**
      * Конструктор - создание нового объекта с определенными значениями
      *
-     * @param storage   - хранилище пользователей
-     * @param validator - валидатор пользователей
+     * @param storage     - хранилище пользователей
+     * @param filmStorage - хранилище фильмов
+     * @param validator   - валидатор пользователей
+     * @param leaderboard - рейтинг популярных фильмов
+     * @param filmCache     - кэш фильмов
+     * @param pageValidator - валидатор параметров страницы
+     * @param friendIdsCache - кэш идентификаторов друзей
      */
-    public UserService(@Qualifier("userDbStorage") UserStorage storage, UserValidator validator) {
+    public UserService(@Qualifier("userDbStorage") UserStorage storage,
+                       @Qualifier("filmDbStorage") FilmStorage filmStorage, UserValidator validator,
+                       PopularFilmsLeaderboard leaderboard, FilmCache filmCache,
+                       PageValidator pageValidator, FriendIdsCache friendIdsCache) {
         this.storage = storage;
+        this.filmStorage = filmStorage;
         this.validator = validator;
+        this.leaderboard = leaderboard;
+        this.filmCache = filmCache;
+        this.pageValidator = pageValidator;
+        this.friendIdsCache = friendIdsCache;
     }
 
     /**
@@ -48,10 +91,32 @@ public class UserService {
      */
     public List<User> findAllUsers() {
         List<User> users = storage.findAllUsers();
-        users.forEach(user -> user.setFriends(storage.getIdFriendsByUser(user)));
+        loadFriends(users);
         return users;
     }
 
+    /**
+     * Метод получения страницы пользователей из хранилища сервиса по курсору
+     *
+     * @param after идентификатор последнего пользователя предыдущей страницы (null - с начала)
+     * @param limit размер страницы (null - размер по умолчанию)
+     * @return пользователи с идентификатором больше after, упорядоченные по идентификатору
+     */
+    public List<User> findUsers(Long after, Integer limit) {
+        List<User> users = storage.findUsers(after, pageValidator.validate(after, limit));
+        loadFriends(users);
+        return users;
+    }
+
+    /**
+     * Метод потоковой выгрузки всех пользователей из хранилища сервиса
+     *
+     * @param consumer обработчик пользователей
+     */
+    public void streamUsers(Consumer<User> consumer) {
+        storage.streamUsers(consumer);
+    }
+
     /**
      * Метод добавления пользователя в хранилище сервиса
      *
@@ -84,6 +149,85 @@ public class UserService {
         return user;
     }
 
+    /**
+     * Метод проверки пользователя перед пакетной загрузкой: кроме валидации полей проверяется,
+     * что у пользователя нет идентификатора. Пустое имя заменяется логином
+     *
+     * @param user {@link User}
+     * @throws ValidationException если пользователь не может быть добавлен
+     */
+    public void validateNewUser(User user) {
+        validator.validate(user);
+        if (user.getId() != null && user.getId() > 0) {
+            throw new ValidationException("Пользователь не должен иметь идентификатора " +
+                    "(при создании генерируется автоматически)");
+        }
+        if (user.getName() == null || user.getName().isBlank()) {
+            user.setName(user.getLogin());
+        }
+    }
+
+    /**
+     * Метод проверки уникальности email и логинов пакета пользователей перед записью.
+     * Повторы ищутся внутри пакета и одним запросом среди уже сохраненных пользователей,
+     * в том числе сохраненных предыдущими пакетами той же загрузки, поэтому память проверки
+     * ограничена размером пакета, а повтор не срывает запись всего пакета
+     *
+     * @param users пакет пользователей, прошедших проверку {@link #validateNewUser(User)}
+     * @return сообщения об ошибке по номеру пользователя в пакете, пустые, если отклоненных нет
+     */
+    public Map<Integer, String> checkNewUsers(List<User> users) {
+        Map<Integer, String> rejected = new HashMap<>();
+        Set<String> emails = new HashSet<>();
+        Set<String> logins = new HashSet<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (emails.contains(user.getEmail())) {
+                rejected.put(i, "Пользователь с email " + user.getEmail() + " уже есть в загрузке");
+            } else if (logins.contains(user.getLogin())) {
+                rejected.put(i, "Пользователь с логином " + user.getLogin() + " уже есть в загрузке");
+            } else {
+                emails.add(user.getEmail());
+                logins.add(user.getLogin());
+            }
+        }
+        Set<String> takenEmails = new HashSet<>();
+        Set<String> takenLogins = new HashSet<>();
+        for (User existing : storage.getUsersByEmailsOrLogins(emails, logins)) {
+            takenEmails.add(existing.getEmail());
+            takenLogins.add(existing.getLogin());
+        }
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (rejected.containsKey(i)) {
+                continue;
+            }
+            if (takenEmails.contains(user.getEmail())) {
+                rejected.put(i, "Пользователь с email " + user.getEmail() + " уже существует");
+            } else if (takenLogins.contains(user.getLogin())) {
+                rejected.put(i, "Пользователь с логином " + user.getLogin() + " уже существует");
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * Метод пакетного добавления проверенных пользователей в хранилище сервиса одной транзакцией
+     *
+     * @param users список пользователей, прошедших проверки {@link #validateNewUser(User)}
+     *              и {@link #checkNewUsers(List)}
+     * @return идентификаторы добавленных пользователей в порядке списка
+     */
+    @Transactional
+    public List<Long> createUsers(List<User> users) {
+        storage.createUsers(users);
+        List<Long> ids = new ArrayList<>(users.size());
+        for (User user : users) {
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+
     /**
      * Метод обновления пользователя в хранилище сервиса
      *
@@ -98,16 +242,22 @@ public class UserService {
         checkUserId(checkId);
         validator.validate(user);
         user = storage.updateUser(user);
-        user.setFriends(storage.getIdFriendsByUser(user));
+        user.setFriends(toSet(getFriendIds(user.getId())));
         log.info("Обновлен пользователь: " + user);
         return user;
     }
 
     /**
-     * Метод очищения списка всех пользователей в хранилище сервиса
+     * Метод очищения списка всех пользователей в хранилище сервиса вместе с их лайками
      */
+    @Transactional
     public void deleteAllUsers() {
+        filmStorage.deleteAllLikes();
         storage.deleteAllUsers();
+        // Вместе с пользователями удаляются и их лайки
+        leaderboard.resetLikes();
+        filmCache.clear();
+        friendIdsCache.clear();
     }
 
     /**
@@ -121,7 +271,7 @@ public class UserService {
         if (user == null) {
             throw new NotFoundException("Пользователь с идентификатором " + id + " не найден");
         }
-        user.setFriends(storage.getIdFriendsByUser(user));
+        user.setFriends(toSet(getFriendIds(user.getId())));
         return user;
     }
 
@@ -132,25 +282,23 @@ public class UserService {
      * @param idFriend - идентификатор пользователя, которого добавляют в друзья
      */
     public void addToFriends(Long idUser, Long idFriend) {
-        checkUserId(idUser);
-        checkUserId(idFriend);
-        // Eсли пользователь уже отправил запрос и он не был принят
-        if (storage.checkFriendship(idUser, idFriend, false)) {
-            log.warn("Пользователь " + idUser + " уже отправлял запрос в друзья пользователю " + idFriend);
-            return;
-        }
-        // Eсли пользователь еще не отправлял запрос и ему не был отправлен встречный запрос
-        if (!storage.checkFriendship(idUser, idFriend, false)
-                && !storage.checkFriendship(idFriend, idUser, false)) {
-            storage.addToFriends(idUser, idFriend);
-            log.info("Пользователь " + idUser
-                    + " добавлен в друзья пользователю" + idFriend);
-        }
-        // Eсли пользователь отправляет взаимный запрос и попадает в друзья
-        if (storage.checkFriendship(idFriend, idUser, false)) {
-            storage.acceptToFriends(idFriend, idUser);
-            log.info("Пользователь " + idUser
-                    + " одобрил заявку в друзья пользователю" + idFriend);
+        FriendshipTransition transition = storage.addToFriends(idUser, idFriend);
+        checkTransition(transition, idUser, idFriend);
+        invalidateFriends(transition, idUser, idFriend);
+        switch (transition) {
+            case ALREADY_REQUESTED:
+                log.warn("Пользователь " + idUser + " уже отправлял запрос в друзья пользователю " + idFriend);
+                break;
+            case ALREADY_FRIENDS:
+                log.warn("Пользователь " + idUser + " уже в друзьях у пользователя " + idFriend);
+                break;
+            case CONFIRMED:
+                log.info("Пользователь " + idUser
+                        + " одобрил заявку в друзья пользователю " + idFriend);
+                break;
+            default:
+                log.info("Пользователь " + idUser
+                        + " добавлен в друзья пользователю " + idFriend);
         }
     }
 
@@ -161,29 +309,15 @@ public class UserService {
      * @param idFriend - идентификатор пользователя, которого удаляют из друзей
      */
     public void deleteFromFriends(Long idUser, Long idFriend) {
-        checkUserId(idUser);
-        checkUserId(idFriend);
-        // Eсли пользователь не отправлял запрос
-        if (!storage.checkFriendship(idUser, idFriend, false)) {
+        FriendshipTransition transition = storage.deleteFromFriends(idUser, idFriend);
+        checkTransition(transition, idUser, idFriend);
+        invalidateFriends(transition, idUser, idFriend);
+        if (transition == FriendshipTransition.NOT_FRIENDS) {
             log.warn("Пользователь " + idUser + " не отправлял запрос в друзья пользователю " + idFriend);
-        }
-        // Eсли пользователь отправлял запрос и его не одобрили
-        if (storage.checkFriendship(idUser, idFriend, false)) {
-            storage.deleteFromFriends(idUser, idFriend);
-            log.info("Пользователь " + idUser
-                    + " удалился из друзей у " + idFriend);
-        }
-        // Eсли пользователь был в друзьях
-        if (storage.checkFriendship(idUser, idFriend, true)) {
-            storage.deleteFromConfirmFriends(idUser, idFriend);
+        } else {
             log.info("Пользователь " + idUser
                     + " удалился из друзей у " + idFriend);
         }
-        if (storage.checkFriendship(idFriend, idUser, true)) {
-            storage.deleteFromConfirmFriends(idFriend, idUser);
-            log.info("Пользователь " + idFriend
-                    + " удалился из друзей у " + idUser);
-        }
     }
 
     /**
@@ -194,13 +328,15 @@ public class UserService {
      */
     public List<User> getFriendsByUser(Long idUser) {
         checkUserId(idUser);
-        List<User> friends = storage.getFriendsByUser(idUser);
-        friends.forEach(user -> user.setFriends(storage.getIdFriendsByUser(user)));
+        List<User> friends = storage.getUsersByIds(toList(getFriendIds(idUser)));
+        loadFriends(friends);
         return friends;
     }
 
     /**
-     * Метод получения списка общих друзей двух пользователей из хранилища сервиса
+     * Метод получения списка общих друзей двух пользователей из хранилища сервиса.
+     * Общие друзья находятся пересечением отсортированных списков идентификаторов друзей из кэша,
+     * после чего одним пакетным запросом читаются только найденные пользователи
      *
      * @param idUser  - идентификатор пользователя, который запрашивает список общих друзей
      * @param otherId - идентификатор пользователя, с которым идет поиск общих друзей
@@ -209,11 +345,110 @@ public class UserService {
     public List<User> getCommonFriends(Long idUser, Long otherId) {
         checkUserId(idUser);
         checkUserId(otherId);
-        List<User> commonFriends = storage.getCommonFriends(idUser, otherId);
-        commonFriends.forEach(user -> user.setFriends(storage.getIdFriendsByUser(user)));
+        long[] commonIds = SortedLongArrays.intersect(getFriendIds(idUser), getFriendIds(otherId));
+        List<User> commonFriends = storage.getUsersByIds(toList(commonIds));
+        loadFriends(commonFriends);
         return commonFriends;
     }
 
+    /**
+     * Метод получения идентификаторов друзей пользователя из кэша, а при их отсутствии - из хранилища
+     *
+     * @param idUser идентификатор пользователя
+     * @return отсортированный массив идентификаторов друзей, который нельзя изменять
+     */
+    private long[] getFriendIds(Long idUser) {
+        long[] friendIds = friendIdsCache.get(idUser);
+        if (friendIds != null) {
+            return friendIds;
+        }
+        long stamp = friendIdsCache.stamp(idUser);
+        friendIds = storage.getFriendIds(idUser);
+        friendIdsCache.put(idUser, friendIds, stamp);
+        return friendIds;
+    }
+
+    /**
+     * Метод заполнения друзей списка пользователей. Друзья, которых нет в кэше,
+     * читаются из хранилища одним пакетным запросом для всех таких пользователей
+     *
+     * @param users список пользователей
+     */
+    private void loadFriends(List<User> users) {
+        Map<Long, long[]> friendIds = new HashMap<>(users.size() * 2);
+        Map<Long, Long> stamps = new HashMap<>();
+        for (User user : users) {
+            long[] ids = friendIdsCache.get(user.getId());
+            if (ids != null) {
+                friendIds.put(user.getId(), ids);
+            } else {
+                stamps.put(user.getId(), friendIdsCache.stamp(user.getId()));
+            }
+        }
+        if (!stamps.isEmpty()) {
+            storage.getIdFriendsByUsers(stamps.keySet()).forEach((id, friends) -> {
+                long[] ids = SortedLongArrays.of(friends);
+                friendIdsCache.put(id, ids, stamps.get(id));
+                friendIds.put(id, ids);
+            });
+        }
+        users.forEach(user -> user.setFriends(toSet(friendIds.get(user.getId()))));
+    }
+
+    /**
+     * Метод удаления из кэша друзей обоих пользователей, если переход изменил дружбу
+     *
+     * @param transition - результат перехода
+     * @param idUser     - идентификатор пользователя, выполняющего переход
+     * @param idFriend   - идентификатор второго пользователя пары
+     */
+    private void invalidateFriends(FriendshipTransition transition, Long idUser, Long idFriend) {
+        switch (transition) {
+            case REQUESTED:
+            case CONFIRMED:
+            case DELETED:
+            case UNCONFIRMED:
+                friendIdsCache.invalidate(idUser);
+                friendIdsCache.invalidate(idFriend);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private List<Long> toList(long[] ids) {
+        List<Long> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    private Set<Long> toSet(long[] ids) {
+        Set<Long> result = new HashSet<>(ids.length * 2);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * Метод проверки, что переход дружбы не завершился из-за отсутствия одного из пользователей
+     *
+     * @param transition - результат перехода
+     * @param idUser     - идентификатор пользователя, выполняющего переход
+     * @param idFriend   - идентификатор второго пользователя пары
+     * @throws NotFoundException если один из пользователей не найден
+     */
+    private void checkTransition(FriendshipTransition transition, Long idUser, Long idFriend) {
+        if (transition == FriendshipTransition.USER_NOT_FOUND) {
+            throw new NotFoundException("Пользователь с идентификатором " + idUser + " не найден");
+        }
+        if (transition == FriendshipTransition.FRIEND_NOT_FOUND) {
+            throw new NotFoundException("Пользователь с идентификатором " + idFriend + " не найден");
+        }
+    }
+
     /**
      * Метод проверки наличия в хранилище пользователей пользователя по идентификатору
      *
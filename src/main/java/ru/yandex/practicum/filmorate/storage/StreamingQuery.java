@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Класс потокового чтения результата запроса. Встроенная H2 без ленивого выполнения строит
+ * весь результат до выдачи первой строки и не учитывает размер выборки, поэтому на время запроса
+ * на соединении включается LAZY_QUERY_EXECUTION: строки вычисляются по мере чтения курсора.
+ * Результат читается лениво, только если H2 не нужно его сортировать, то есть ORDER BY совпадает
+ * с порядком индекса первой таблицы. Соединение остается занятым, пока обработчик не прочитает
+ * все строки, поэтому медленный получатель удерживает соединение пула
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+public final class StreamingQuery {
+    private StreamingQuery() {
+    }
+
+    /**
+     * Метод выполнения запроса с передачей строк обработчику по мере их вычисления.
+     * После запроса ленивое выполнение выключается, даже если обработчик завершился ошибкой
+     *
+     * @param jdbcTemplate - шаблон, через который берется соединение
+     * @param sql          - запрос без параметров
+     * @param fetchSize    - размер выборки для H2, работающей как сервер
+     * @param handler      - обработчик строк
+     */
+    public static void query(JdbcTemplate jdbcTemplate, String sql, int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            setLazy(connection, true);
+            try (PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        handler.processRow(rs);
+                    }
+                }
+            } finally {
+                setLazy(connection, false);
+            }
+            return null;
+        });
+    }
+
+    private static void setLazy(Connection connection, boolean lazy) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LAZY_QUERY_EXECUTION " + (lazy ? 1 : 0));
+        }
+    }
+}
@@ -1,26 +1,78 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.StreamingQuery;
 
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
+@Slf4j
 @Component
 public class FilmDbStorage implements FilmStorage {
+    /**
+     * Максимальное количество идентификаторов в одном условии IN
+     */
+    private static final int IN_CLAUSE_BATCH_SIZE = 1000;
+    /**
+     * Количество строк, которое драйвер читает за одно обращение при потоковой выгрузке
+     */
+    private static final int STREAM_FETCH_SIZE = 500;
 
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    /**
+     * Вставка фильма, подготовленная один раз: список колонок задан явно,
+     * поэтому метаданные таблицы не читаются, а после компиляции объект потокобезопасен
+     */
+    private final SimpleJdbcInsert filmInsert;
+    /**
+     * Поле признак пересчета счетчиков лайков при старте приложения. Счетчики меняются в одной
+     * транзакции с лайками, поэтому пересчет с полным просмотром таблиц нужен только после
+     * изменения данных в обход приложения
+     */
+    private final boolean reconcileOnStartup;
 
-    @Autowired
     public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, false);
+    }
+
+    @Autowired
+    public FilmDbStorage(JdbcTemplate jdbcTemplate,
+                         @Value("${filmorate.likes.reconcile-on-startup:false}") boolean reconcileOnStartup) {
         this.jdbcTemplate = jdbcTemplate;
+        this.reconcileOnStartup = reconcileOnStartup;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.filmInsert = new SimpleJdbcInsert(jdbcTemplate);
+        this.filmInsert.withTableName("films")
+                .usingColumns("name", "description", "release_date", "duration", "rating_id")
+                .usingGeneratedKeyColumns("film_id")
+                .withoutTableColumnMetaDataAccess();
+        this.filmInsert.compile();
     }
 
     public List<Film> findAllFilms() {
@@ -30,18 +82,67 @@ public class FilmDbStorage implements FilmStorage {
                 "f.release_date, " +
                 "f.duration, " +
                 "f.rating_id, " +
-                "r.name r_name " +
+                "r.name r_name, " +
+                "r.description r_description " +
                 "FROM films AS f " +
                 "JOIN ratings AS r ON f.rating_id = r.rating_id " +
                 "ORDER BY f.film_id";
         return jdbcTemplate.query(sql, this::makeFilm);
     }
 
-    public Film createFilm(Film film) {
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("films")
-                .usingGeneratedKeyColumns("film_id");
+    public List<Film> findFilms(Long after, int limit) {
+        String sql = "SELECT f.film_id, " +
+                "f.name, " +
+                "f.description, " +
+                "f.release_date, " +
+                "f.duration, " +
+                "f.rating_id, " +
+                "r.name r_name, " +
+                "r.description r_description " +
+                "FROM films AS f " +
+                "JOIN ratings AS r ON f.rating_id = r.rating_id " +
+                "WHERE f.film_id > ? " +
+                "ORDER BY f.film_id " +
+                "LIMIT ?";
+        return jdbcTemplate.query(sql, this::makeFilm, after == null ? 0 : after, limit);
+    }
 
+    public void streamFilms(Consumer<Film> consumer) {
+        // Жанры и лайки собираются в массивы коррелированными подзапросами,
+        // поэтому каждая строка курсора - полностью заполненный фильм. LEFT JOIN закрепляет films
+        // первой таблицей: H2 читает ее по первичному ключу без сортировки, и результат выдается лениво
+        String sql = "SELECT f.film_id, " +
+                "f.name, " +
+                "f.description, " +
+                "f.release_date, " +
+                "f.duration, " +
+                "f.rating_id, " +
+                "r.name r_name, " +
+                "r.description r_description, " +
+                "(SELECT ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id) " +
+                "FROM films_genres AS fg WHERE fg.film_id = f.film_id) genre_ids, " +
+                "(SELECT ARRAY_AGG(g.name ORDER BY fg.genre_id) " +
+                "FROM films_genres AS fg JOIN genres AS g ON g.genre_id = fg.genre_id " +
+                "WHERE fg.film_id = f.film_id) genre_names, " +
+                "(SELECT ARRAY_AGG(fl.user_id) FROM films_likes AS fl WHERE fl.film_id = f.film_id) likes " +
+                "FROM films AS f " +
+                "LEFT JOIN ratings AS r ON f.rating_id = r.rating_id " +
+                "ORDER BY f.film_id";
+        StreamingQuery.query(jdbcTemplate, sql, STREAM_FETCH_SIZE, rs -> {
+            Film film = makeFilm(rs, 0);
+            Object[] genreIds = getArray(rs, "genre_ids");
+            Object[] genreNames = getArray(rs, "genre_names");
+            for (int i = 0; i < genreIds.length; i++) {
+                film.getGenres().add(new Genre(((Number) genreIds[i]).longValue(), (String) genreNames[i]));
+            }
+            for (Object userId : getArray(rs, "likes")) {
+                film.getLikes().add(((Number) userId).longValue());
+            }
+            consumer.accept(film);
+        });
+    }
+
+    public Film createFilm(Film film) {
         Map<String, Object> values = new HashMap<>();
         values.put("name", film.getName());
         values.put("description", film.getDescription());
@@ -49,10 +150,42 @@ public class FilmDbStorage implements FilmStorage {
         values.put("duration", film.getDuration());
         values.put("rating_id", film.getMpa().getId());
 
-        film.setId(simpleJdbcInsert.executeAndReturnKey(values).longValue());
+        film.setId(filmInsert.executeAndReturnKey(values).longValue());
         return film;
     }
 
+    public List<Film> createFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        String sql = "INSERT INTO films (name, description, release_date, duration, rating_id) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        return jdbcTemplate.execute((ConnectionCallback<List<Film>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql, new String[]{"film_id"})) {
+                for (Film film : films) {
+                    statement.setString(1, film.getName());
+                    statement.setString(2, film.getDescription());
+                    statement.setDate(3, Date.valueOf(film.getReleaseDate()));
+                    statement.setLong(4, film.getDuration());
+                    statement.setLong(5, film.getMpa().getId());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                int index = 0;
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next() && index < films.size()) {
+                        films.get(index++).setId(keys.getLong(1));
+                    }
+                }
+                if (index != films.size()) {
+                    throw new DataRetrievalFailureException("Получено " + index
+                            + " сгенерированных идентификаторов вместо " + films.size());
+                }
+                return films;
+            }
+        });
+    }
+
     public Film updateFilm(Film film) {
         String sql =
                 "UPDATE films SET name = ?, description = ?," +
@@ -74,7 +207,7 @@ public class FilmDbStorage implements FilmStorage {
 
     public Film getFilmById(Long id) {
         String sql = "SELECT f.film_id, f.name, f.description, " +
-                "f.release_date, f.duration, f.rating_id, r.name r_name " +
+                "f.release_date, f.duration, f.rating_id, r.name r_name, r.description r_description " +
                 "FROM films f " +
                 "JOIN ratings r ON f.rating_id = r.rating_id " +
                 "WHERE f.film_id = ?";
@@ -85,26 +218,89 @@ public class FilmDbStorage implements FilmStorage {
         return result.get(0);
     }
 
-    public void addLikeToFilm(Long idFilm, Long idUser) {
-        String sql = "INSERT INTO films_likes (film_id, user_id) VALUES(?, ?)";
-        jdbcTemplate.update(sql, idFilm, idUser);
+    public List<Film> getFilmsByIds(Collection<Long> ids) {
+        List<Film> films = new ArrayList<>(ids.size());
+        List<Long> idList = new ArrayList<>(ids);
+        String sql = "SELECT f.film_id, f.name, f.description, " +
+                "f.release_date, f.duration, f.rating_id, r.name r_name, r.description r_description " +
+                "FROM films f " +
+                "JOIN ratings r ON f.rating_id = r.rating_id " +
+                "WHERE f.film_id IN (:ids)";
+        for (int from = 0; from < idList.size(); from += IN_CLAUSE_BATCH_SIZE) {
+            List<Long> batch = idList.subList(from, Math.min(from + IN_CLAUSE_BATCH_SIZE, idList.size()));
+            films.addAll(namedParameterJdbcTemplate.query(sql, Map.of("ids", batch), this::makeFilm));
+        }
+        return films;
     }
 
-    public void deleteLikeFromFilm(Long idFilm, Long idUser) {
+    @Transactional
+    public boolean addLikeToFilm(Long idFilm, Long idUser) {
+        String sql = "INSERT INTO films_likes (film_id, user_id) " +
+                "SELECT f.film_id, u.user_id " +
+                "FROM films AS f, users AS u " +
+                "WHERE f.film_id = ? AND u.user_id = ? " +
+                "AND NOT EXISTS (SELECT 1 FROM films_likes AS fl " +
+                "WHERE fl.film_id = f.film_id AND fl.user_id = u.user_id)";
+        try {
+            if (jdbcTemplate.update(sql, idFilm, idUser) == 0) {
+                return false;
+            }
+        } catch (DuplicateKeyException e) {
+            // Такой же лайк вставлен параллельной транзакцией после проверки NOT EXISTS
+            return false;
+        }
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count + 1 WHERE film_id = ?", idFilm);
+        return true;
+    }
+
+    @Transactional
+    public boolean deleteLikeFromFilm(Long idFilm, Long idUser) {
         String sql = "DELETE FROM films_likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, idFilm, idUser);
+        if (jdbcTemplate.update(sql, idFilm, idUser) == 0) {
+            return false;
+        }
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 WHERE film_id = ?", idFilm);
+        return true;
     }
 
     public List<Film> getPopularFilm(Integer count) {
-        String sql = "SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.rating_id " +
+        String sql = "SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.rating_id, " +
+                "r.name r_name, r.description r_description " +
                 "FROM films AS f " +
-                "LEFT JOIN films_likes AS fl ON f.film_id = fl.film_id " +
-                "GROUP BY f.film_id " +
-                "ORDER BY COUNT(fl.user_id) " +
-                "DESC LIMIT ?";
+                "JOIN ratings AS r ON f.rating_id = r.rating_id " +
+                "ORDER BY f.likes_count DESC, f.film_id " +
+                "LIMIT ?";
         return jdbcTemplate.query(sql, this::makeFilm, count);
     }
 
+    /**
+     * Метод пересчета счетчиков лайков при старте приложения, если он включен свойством
+     * filmorate.likes.reconcile-on-startup. Выполняется раньше загрузки рейтинга популярных фильмов
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileLikesCountOnStartup() {
+        if (reconcileOnStartup) {
+            reconcileLikesCount();
+        }
+    }
+
+    /**
+     * Метод пересчета счетчиков лайков фильмов по таблице films_likes при расхождении с ней
+     *
+     * @return количество исправленных фильмов
+     */
+    public int reconcileLikesCount() {
+        String sql = "UPDATE films f " +
+                "SET likes_count = (SELECT COUNT(*) FROM films_likes fl WHERE fl.film_id = f.film_id) " +
+                "WHERE likes_count <> (SELECT COUNT(*) FROM films_likes fl WHERE fl.film_id = f.film_id)";
+        int repaired = jdbcTemplate.update(sql);
+        if (repaired > 0) {
+            log.warn("Исправлены счетчики лайков у " + repaired + " фильмов");
+        }
+        return repaired;
+    }
+
     public Set<Long> getLikesByFilm(Film film) {
         String sql = "SELECT user_id " +
                 "FROM films_likes " +
@@ -118,10 +314,38 @@ public class FilmDbStorage implements FilmStorage {
         return likes;
     }
 
-    public boolean checkLike(Long idFilm, Long idUser) {
-        String sql = "SELECT * FROM films_likes WHERE film_id = ? AND user_id = ?";
-        SqlRowSet rows = jdbcTemplate.queryForRowSet(sql, idFilm, idUser);
-        return rows.next();
+    public Map<Long, Set<Long>> getLikesByFilms(Collection<Long> filmIds) {
+        Map<Long, Set<Long>> likes = new HashMap<>();
+        filmIds.forEach(id -> likes.put(id, new HashSet<>()));
+        List<Long> ids = new ArrayList<>(likes.keySet());
+        String sql = "SELECT film_id, user_id " +
+                "FROM films_likes " +
+                "WHERE film_id IN (:ids)";
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + IN_CLAUSE_BATCH_SIZE, ids.size()));
+            namedParameterJdbcTemplate.query(sql, Map.of("ids", batch), (RowCallbackHandler) rs ->
+                    likes.get(rs.getLong("film_id")).add(rs.getLong("user_id")));
+        }
+        return likes;
+    }
+
+    @Override
+    public void deleteAllLikes() {
+        jdbcTemplate.update("DELETE FROM films_likes");
+        jdbcTemplate.update("UPDATE films SET likes_count = 0 WHERE likes_count <> 0");
+    }
+
+    public Map<Long, Long> getLikesCountByFilms() {
+        String sql = "SELECT film_id, likes_count FROM films";
+        Map<Long, Long> likes = new HashMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs ->
+                likes.put(rs.getLong("film_id"), rs.getLong("likes_count")));
+        return likes;
+    }
+
+    private Object[] getArray(ResultSet resultSet, String column) throws SQLException {
+        Array array = resultSet.getArray(column);
+        return array == null ? new Object[0] : (Object[]) array.getArray();
     }
 
     private Film makeFilm(ResultSet resultSet, int rowNum) throws SQLException {
@@ -132,6 +356,8 @@ public class FilmDbStorage implements FilmStorage {
         int duration = resultSet.getInt("duration");
         Mpa mpa = new Mpa();
         mpa.setId(resultSet.getLong("rating_id"));
+        mpa.setName(resultSet.getString("r_name"));
+        mpa.setDescription(resultSet.getString("r_description"));
         Film film = new Film(name, description, releaseDate, duration, mpa);
         film.setId(id);
         return film;
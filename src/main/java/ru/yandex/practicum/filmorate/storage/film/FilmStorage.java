@@ -2,8 +2,11 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс хранилища пользователей
@@ -19,6 +22,24 @@ public interface FilmStorage {
      */
     List<Film> findAllFilms();
 
+    /**
+     * Метод получения страницы фильмов из хранилища по курсору
+     *
+     * @param after идентификатор последнего фильма предыдущей страницы (null - с начала)
+     * @param limit максимальное количество фильмов на странице
+     * @return фильмы с идентификатором больше after, упорядоченные по идентификатору
+     */
+    List<Film> findFilms(Long after, int limit);
+
+    /**
+     * Метод потоковой выгрузки всех фильмов из хранилища вместе с жанрами и лайками.
+     * Фильмы передаются обработчику по одному в порядке идентификаторов, не накапливаясь в памяти,
+     * но лайки одного фильма загружаются целиком
+     *
+     * @param consumer обработчик фильмов
+     */
+    void streamFilms(Consumer<Film> consumer);
+
     /**
      * Метод добавления фильма в хранилище
      *
@@ -27,6 +48,14 @@ public interface FilmStorage {
      */
     Film createFilm(Film film);
 
+    /**
+     * Метод пакетного добавления фильмов в хранилище
+     *
+     * @param films список фильмов {@link Film}
+     * @return тот же список фильмов с добавленными id
+     */
+    List<Film> createFilms(List<Film> films);
+
     /**
      * Метод обновления фильма в хранилище
      *
@@ -49,22 +78,34 @@ public interface FilmStorage {
     Film getFilmById(Long id);
 
     /**
-     * Метод добавления лайка в список лайков фильма из хранилища
+     * Метод получения фильмов по списку идентификаторов из хранилища
+     *
+     * @param ids идентификаторы фильмов
+     * @return найденные фильмы в произвольном порядке, отсутствующие идентификаторы пропускаются
+     */
+    List<Film> getFilmsByIds(Collection<Long> ids);
+
+    /**
+     * Метод добавления лайка в список лайков фильма из хранилища одним запросом.
+     * Повторный лайк, в том числе одновременный с таким же, а также лайк несуществующему фильму
+     * или от несуществующего пользователя ничего не меняет
      *
      * @param idFilm - идентификатор фильма, которому добавляется лайк,
      * @param idUser - идентификатор пользователя user,
      *               который ставит лайк {@link ru.yandex.practicum.filmorate.model.User}
+     * @return true, если лайк добавлен, false, если ничего не изменилось
      */
-    void addLikeToFilm(Long idFilm, Long idUser);
+    boolean addLikeToFilm(Long idFilm, Long idUser);
 
     /**
-     * Метод удаления добавленного лайка у фильма из хранилища
+     * Метод удаления добавленного лайка у фильма из хранилища одним запросом
      *
      * @param idFilm - идентификатор фильма, у которого удаляют лайк,
      * @param idUser - идентификатор пользователя user,
      *               который удаляет лайк {@link ru.yandex.practicum.filmorate.model.User}
+     * @return true, если лайк удален, false, если лайка не было
      */
-    void deleteLikeFromFilm(Long idFilm, Long idUser);
+    boolean deleteLikeFromFilm(Long idFilm, Long idUser);
 
     /**
      * Метод получения списка самых популярных фильмов из хранилища
@@ -83,11 +124,22 @@ public interface FilmStorage {
     Set<Long> getLikesByFilm(Film film);
 
     /**
-     * Метод проверки наличия у фильма лайка от пользователя
+     * Метод получения списков лайков сразу для нескольких фильмов
+     *
+     * @param filmIds идентификаторы фильмов
+     * @return списки лайков, сгруппированные по идентификатору фильма
+     */
+    Map<Long, Set<Long>> getLikesByFilms(Collection<Long> filmIds);
+
+    /**
+     * Метод удаления лайков у всех фильмов хранилища (при удалении всех пользователей)
+     */
+    void deleteAllLikes();
+
+    /**
+     * Метод получения количества лайков всех фильмов хранилища
      *
-     * @param idFilm - идентификатор фильма, которому хотят поставить лайк,
-     * @param idUser - идентификатор пользователя, который хочет
-     *               поставить лайк {@link ru.yandex.practicum.filmorate.model.User}
+     * @return количество лайков по идентификатору фильма, включая фильмы без лайков
      */
-    boolean checkLike(Long idFilm, Long idUser);
+    Map<Long, Long> getLikesCountByFilms();
 }
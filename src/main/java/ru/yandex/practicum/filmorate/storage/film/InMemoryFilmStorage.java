@@ -1,73 +1,208 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.*;
-import java.util.stream.Collectors;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+/**
+ * Класс потокобезопасного хранилища фильмов в памяти.
+ * Фильмы хранятся в skip-list, упорядоченном по идентификатору, лайки - в отдельных конкурентных множествах.
+ * Изменение лайков фильма выполняется под блокировкой его ключа, поэтому множество лайков
+ * и рейтинг популярности меняются согласованно, а разные фильмы не блокируют друг друга.
+ * Наружу отдаются копии фильмов, изменение которых не затрагивает хранилище
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
 @Slf4j
 @Component
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Long, Film> films = new HashMap<>();
-    private static Long numberId = 1L;
+    private final ConcurrentNavigableMap<Long, Film> films = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<Long, Set<Long>> likes = new ConcurrentHashMap<>();
+    private final LikesRanking ranking = new LikesRanking();
+    private final AtomicLong numberId = new AtomicLong();
+    /**
+     * Поле хранилище пользователей, лайк от несуществующего пользователя не добавляется
+     */
+    private final UserStorage userStorage;
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param userStorage - хранилище пользователей, которые ставят лайки
+     */
+    public InMemoryFilmStorage(@Qualifier("inMemoryUserStorage") UserStorage userStorage) {
+        this.userStorage = userStorage;
+    }
 
     public List<Film> findAllFilms() {
-        return new ArrayList<>(films.values());
+        List<Film> result = new ArrayList<>();
+        films.values().forEach(film -> result.add(copy(film)));
+        return result;
+    }
+
+    public List<Film> findFilms(Long after, int limit) {
+        Collection<Film> page = films.tailMap(after == null ? 0 : after, false).values();
+        List<Film> result = new ArrayList<>();
+        for (Film film : page) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(copy(film));
+        }
+        return result;
+    }
+
+    public void streamFilms(Consumer<Film> consumer) {
+        films.values().forEach(film -> consumer.accept(copy(film)));
     }
 
     public Film createFilm(Film film) {
-        film.setId(numberId);
+        long id = numberId.incrementAndGet();
+        film.setId(id);
+        if (film.getGenres() == null) {
+            film.setGenres(new HashSet<>());
+        }
         film.setLikes(new HashSet<>());
-        film.setGenres(new HashSet<>());
-        films.put(film.getId(), film);
-        numberId++;
+        likes.put(id, ConcurrentHashMap.newKeySet());
+        ranking.put(id, 0);
+        films.put(id, copy(film));
         return film;
     }
 
+    public List<Film> createFilms(List<Film> films) {
+        films.forEach(this::createFilm);
+        return films;
+    }
+
     public Film updateFilm(Film film) {
-        if (film.getLikes() == null) {
-            film.setLikes(new HashSet<>());
-        }
         if (film.getGenres() == null) {
             film.setGenres(new HashSet<>());
         }
-        films.put(film.getId(), film);
+        // Лайки хранятся отдельно и при обновлении фильма не меняются
+        if (films.replace(film.getId(), copy(film)) != null) {
+            film.setLikes(getLikesByFilm(film));
+        }
         return film;
     }
 
     public void deleteAllFilms() {
         films.clear();
-        numberId = 1L;
+        likes.clear();
+        ranking.clear();
+        numberId.set(0);
     }
 
     public Film getFilmById(Long id) {
-        return films.getOrDefault(id, null);
+        Film film = films.get(id);
+        return film == null ? null : copy(film);
     }
 
-    public void addLikeToFilm(Long idFilm, Long idUser) {
-        films.get(idFilm).getLikes().add(idUser);
+    @Override
+    public List<Film> getFilmsByIds(Collection<Long> ids) {
+        List<Film> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Film film = films.get(id);
+            if (film != null) {
+                result.add(copy(film));
+            }
+        }
+        return result;
     }
 
-    public void deleteLikeFromFilm(Long idFilm, Long idUser) {
-        films.get(idFilm).getLikes().remove(idUser);
+    public boolean addLikeToFilm(Long idFilm, Long idUser) {
+        return userStorage.getUserById(idUser) != null && changeLike(idFilm, idUser, true);
+    }
+
+    public boolean deleteLikeFromFilm(Long idFilm, Long idUser) {
+        return changeLike(idFilm, idUser, false);
     }
 
     public List<Film> getPopularFilm(Integer count) {
-        return films.values().stream()
-                .sorted((f0, f1) -> Integer.compare(f1.getLikes().size(), f0.getLikes().size()))
-                .limit(count)
-                .collect(Collectors.toList());
+        List<Long> top = ranking.top(count);
+        return getFilmsByIds(top);
     }
 
     @Override
     public Set<Long> getLikesByFilm(Film film) {
-        return films.get(film.getId()).getLikes();
+        Set<Long> filmLikes = likes.get(film.getId());
+        return filmLikes == null ? new HashSet<>() : new HashSet<>(filmLikes);
+    }
+
+    @Override
+    public Map<Long, Set<Long>> getLikesByFilms(Collection<Long> filmIds) {
+        Map<Long, Set<Long>> result = new HashMap<>();
+        for (Long id : filmIds) {
+            Set<Long> filmLikes = likes.get(id);
+            result.put(id, filmLikes == null ? new HashSet<>() : new HashSet<>(filmLikes));
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteAllLikes() {
+        likes.forEach((id, filmLikes) -> likes.computeIfPresent(id, (key, current) -> {
+            current.clear();
+            ranking.put(key, 0);
+            return current;
+        }));
+    }
+
+    @Override
+    public Map<Long, Long> getLikesCountByFilms() {
+        Map<Long, Long> result = new HashMap<>();
+        likes.forEach((id, filmLikes) -> result.put(id, (long) filmLikes.size()));
+        return result;
     }
 
-    public boolean checkLike(Long idFilm, Long idUser) {
-        return films.get(idFilm).getLikes().contains(idUser);
+    /**
+     * Метод изменения лайка под блокировкой ключа фильма: множество лайков и рейтинг
+     * меняются вместе, а лайк удаленного фильма не возвращает его в рейтинг
+     *
+     * @return true, если лайк был добавлен или удален
+     */
+    private boolean changeLike(Long idFilm, Long idUser, boolean add) {
+        boolean[] changed = {false};
+        likes.computeIfPresent(idFilm, (id, filmLikes) -> {
+            changed[0] = add ? filmLikes.add(idUser) : filmLikes.remove(idUser);
+            if (changed[0]) {
+                ranking.add(id, add ? 1 : -1);
+            }
+            return filmLikes;
+        });
+        return changed[0];
+    }
+
+    private Film copy(Film film) {
+        Mpa mpa = null;
+        if (film.getMpa() != null) {
+            mpa = new Mpa();
+            mpa.setId(film.getMpa().getId());
+            mpa.setName(film.getMpa().getName());
+            mpa.setDescription(film.getMpa().getDescription());
+        }
+        Film copy = new Film(film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), mpa);
+        copy.setId(film.getId());
+        Set<Genre> genres = new HashSet<>();
+        film.getGenres().forEach(genre -> genres.add(new Genre(genre.getId(), genre.getName())));
+        copy.setGenres(genres);
+        Set<Long> filmLikes = likes.get(film.getId());
+        if (filmLikes != null) {
+            copy.setLikes(new HashSet<>(filmLikes));
+        }
+        return copy;
     }
 }
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Класс потокобезопасного рейтинга фильмов по количеству лайков.
+ * Фильмы хранятся в skip-list, упорядоченном по убыванию лайков и возрастанию идентификатора,
+ * поэтому первые count фильмов читаются за O(count), а изменение счетчика стоит O(log n)
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+public class LikesRanking {
+    /**
+     * Поле порядок позиций: больше лайков - выше, при равенстве выше фильм с меньшим идентификатором
+     */
+    private static final Comparator<Position> ORDER = Comparator
+            .comparingLong((Position position) -> -position.likes)
+            .thenComparingLong(position -> position.filmId);
+    /**
+     * Поле текущее количество лайков по идентификатору фильма
+     */
+    private final Map<Long, Long> likes = new ConcurrentHashMap<>();
+    /**
+     * Поле позиции фильмов в рейтинге
+     */
+    private final Set<Position> positions = new ConcurrentSkipListSet<>(ORDER);
+
+    /**
+     * Метод установки количества лайков фильма
+     *
+     * @param filmId - идентификатор фильма
+     * @param count  - количество лайков
+     */
+    public void put(Long filmId, long count) {
+        likes.compute(filmId, (id, old) -> move(id, old, count));
+    }
+
+    /**
+     * Метод изменения количества лайков фильма, отсутствующий в рейтинге фильм добавляется с нулем лайков.
+     * Счетчик не ограничивается нулем: изменение и обратное ему изменение при откате транзакции
+     * должны возвращать прежнее количество, даже если между ними счетчик временно стал отрицательным
+     *
+     * @param filmId - идентификатор фильма
+     * @param delta  - на сколько изменилось количество лайков
+     */
+    public void add(Long filmId, long delta) {
+        likes.compute(filmId, (id, old) -> move(id, old, (old == null ? 0 : old) + delta));
+    }
+
+    /**
+     * Метод удаления фильма из рейтинга
+     *
+     * @param filmId - идентификатор фильма
+     */
+    public void remove(Long filmId) {
+        likes.computeIfPresent(filmId, (id, old) -> {
+            positions.remove(new Position(id, old));
+            return null;
+        });
+    }
+
+    /**
+     * Метод обнуления лайков у всех фильмов рейтинга
+     */
+    public void resetLikes() {
+        likes.keySet().forEach(id -> put(id, 0));
+    }
+
+    /**
+     * Метод очищения рейтинга
+     */
+    public void clear() {
+        likes.keySet().forEach(this::remove);
+    }
+
+    /**
+     * Метод получения количества фильмов в рейтинге
+     *
+     * @return количество фильмов
+     */
+    public int size() {
+        return likes.size();
+    }
+
+    /**
+     * Метод получения первых по популярности фильмов
+     *
+     * @param count количество фильмов
+     * @return идентификаторы фильмов по убыванию количества лайков
+     */
+    public List<Long> top(int count) {
+        List<Long> top = new ArrayList<>(Math.max(0, Math.min(count, likes.size())));
+        // При параллельном изменении счетчика фильм может ненадолго оказаться в двух позициях
+        Set<Long> seen = new HashSet<>();
+        for (Position position : positions) {
+            if (top.size() >= count) {
+                break;
+            }
+            if (seen.add(position.filmId)) {
+                top.add(position.filmId);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Метод перемещения фильма на новую позицию, вызывается под блокировкой ключа фильма.
+     * Новая позиция добавляется раньше удаления старой, чтобы читатели не пропустили фильм
+     */
+    private Long move(Long filmId, Long oldCount, long newCount) {
+        if (oldCount != null && oldCount == newCount) {
+            return oldCount;
+        }
+        positions.add(new Position(filmId, newCount));
+        if (oldCount != null) {
+            positions.remove(new Position(filmId, oldCount));
+        }
+        return newCount;
+    }
+
+    /**
+     * Класс позиции фильма в рейтинге
+     */
+    private static final class Position {
+        private final long filmId;
+        private final long likes;
+
+        private Position(long filmId, long likes) {
+            this.filmId = filmId;
+            this.likes = likes;
+        }
+    }
+}
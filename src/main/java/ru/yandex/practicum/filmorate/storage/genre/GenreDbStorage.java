@@ -2,7 +2,10 @@ package ru.yandex.practicum.filmorate.storage.genre;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 
@@ -13,11 +16,18 @@ import java.util.*;
 
 @Component
 public class GenreDbStorage implements GenreStorage {
+    /**
+     * Максимальное количество идентификаторов в одном условии IN
+     */
+    private static final int IN_CLAUSE_BATCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
     @Autowired
     public GenreDbStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
     }
 
     public Set<Genre> getGenresByFilm(Film film) {
@@ -27,6 +37,21 @@ public class GenreDbStorage implements GenreStorage {
         return new HashSet<>(genres);
     }
 
+    public Map<Long, Set<Genre>> getGenresByFilms(Collection<Long> filmIds) {
+        Map<Long, Set<Genre>> genres = new HashMap<>();
+        filmIds.forEach(id -> genres.put(id, new HashSet<>()));
+        List<Long> ids = new ArrayList<>(genres.keySet());
+        String sql = "SELECT fg.FILM_ID, g.GENRE_ID, g.NAME " +
+                "FROM FILMS_GENRES fg JOIN GENRES g ON fg.GENRE_ID = g.GENRE_ID " +
+                "WHERE fg.FILM_ID IN (:ids)";
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + IN_CLAUSE_BATCH_SIZE, ids.size()));
+            namedParameterJdbcTemplate.query(sql, Map.of("ids", batch), (RowCallbackHandler) rs ->
+                    genres.get(rs.getLong("FILM_ID")).add(makeGenre(rs, 0)));
+        }
+        return genres;
+    }
+
     public List<Genre> findAllGenres() {
         String sql = "SELECT * FROM genres ORDER BY genre_id";
         return jdbcTemplate.query(sql, this::makeGenre);
@@ -41,16 +66,72 @@ public class GenreDbStorage implements GenreStorage {
         return result.get(0);
     }
 
+    @Transactional
     public void updateGenresByFilm(Film film) {
-        jdbcTemplate.update("DELETE FROM films_genres WHERE film_id = ?", film.getId());
-        addGenresToFilm(film);
+        String sql = "SELECT genre_id FROM films_genres WHERE film_id = ?";
+        Set<Long> current = new HashSet<>(jdbcTemplate.queryForList(sql, Long.class, film.getId()));
+        Set<Long> updated = getGenreIds(film);
+
+        List<Object[]> removed = new ArrayList<>();
+        for (Long genreId : current) {
+            if (!updated.contains(genreId)) {
+                removed.add(new Object[]{film.getId(), genreId});
+            }
+        }
+        if (!removed.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM films_genres WHERE film_id = ? AND genre_id = ?", removed);
+        }
+        updated.removeAll(current);
+        insertGenres(film.getId(), updated);
     }
 
     public void addGenresToFilm(Film film) {
-        for (Genre genre : film.getGenres()) {
-            jdbcTemplate.update("INSERT INTO films_genres (film_id, genre_id) VALUES (?, ?)",
-                    film.getId(), genre.getId());
+        insertGenres(film.getId(), getGenreIds(film));
+    }
+
+    public void addGenresToFilms(Collection<Film> films) {
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (Film film : films) {
+            for (Long genreId : getGenreIds(film)) {
+                batchArgs.add(new Object[]{film.getId(), genreId});
+            }
+        }
+        insertGenres(batchArgs);
+    }
+
+    /**
+     * Метод добавления связей фильма с жанрами одним пакетом
+     *
+     * @param filmId   - идентификатор фильма
+     * @param genreIds - идентификаторы добавляемых жанров
+     */
+    private void insertGenres(Long filmId, Collection<Long> genreIds) {
+        List<Object[]> batchArgs = new ArrayList<>(genreIds.size());
+        for (Long genreId : genreIds) {
+            batchArgs.add(new Object[]{filmId, genreId});
+        }
+        insertGenres(batchArgs);
+    }
+
+    private void insertGenres(List<Object[]> batchArgs) {
+        if (!batchArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO films_genres (film_id, genre_id) VALUES (?, ?)", batchArgs);
+        }
+    }
+
+    /**
+     * Метод получения идентификаторов жанров фильма без повторов
+     * (жанр с одним идентификатором может прийти несколько раз с разными названиями)
+     *
+     * @param film {@link Film}
+     * @return упорядоченное множество идентификаторов жанров
+     */
+    private Set<Long> getGenreIds(Film film) {
+        Set<Long> genreIds = new TreeSet<>();
+        if (film.getGenres() != null) {
+            film.getGenres().forEach(genre -> genreIds.add(genre.getId()));
         }
+        return genreIds;
     }
 
     private Genre makeGenre(ResultSet resultSet, int rowNum) throws SQLException {
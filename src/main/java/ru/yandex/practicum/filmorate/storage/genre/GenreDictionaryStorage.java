@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.storage.genre;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.metrics.MetricsSource;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс справочника жанров в памяти приложения поверх хранилища в базе данных.
+ * Справочник целиком загружается при создании бина, в том числе при ленивой инициализации контекста,
+ * и заново методом {@link #invalidate()}. Жанры хранятся в массиве по идентификатору,
+ * поэтому поиск не обращается к базе данных и не берет блокировок.
+ * Жанры фильмов по-прежнему читаются и записываются через хранилище в базе данных
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Slf4j
+@Primary
+@Lazy(false)
+@Component
+public class GenreDictionaryStorage implements GenreStorage, MetricsSource, InitializingBean {
+    /**
+     * Поле хранилище жанров в базе данных
+     */
+    private final GenreStorage storage;
+    /**
+     * Поле количество обращений, обслуженных из памяти
+     */
+    private final LongAdder hits = new LongAdder();
+    /**
+     * Поле количество поисков по идентификатору, которого нет в справочнике
+     */
+    private final LongAdder misses = new LongAdder();
+    /**
+     * Поле количество загрузок справочника из базы данных
+     */
+    private final LongAdder loads = new LongAdder();
+    /**
+     * Поле загруженный справочник, жанр с идентификатором id лежит в элементе id
+     */
+    private volatile Genre[] genres = new Genre[0];
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param storage - хранилище жанров в базе данных
+     */
+    public GenreDictionaryStorage(@Qualifier("genreDbStorage") GenreStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        load();
+    }
+
+    @Override
+    public Set<Genre> getGenresByFilm(Film film) {
+        return storage.getGenresByFilm(film);
+    }
+
+    @Override
+    public Map<Long, Set<Genre>> getGenresByFilms(Collection<Long> filmIds) {
+        return storage.getGenresByFilms(filmIds);
+    }
+
+    @Override
+    public List<Genre> findAllGenres() {
+        hits.increment();
+        List<Genre> result = new ArrayList<>();
+        for (Genre genre : genres) {
+            if (genre != null) {
+                result.add(new Genre(genre.getId(), genre.getName()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Genre findGenreById(Long id) {
+        Genre[] loaded = genres;
+        if (id == null || id < 0 || id >= loaded.length || loaded[id.intValue()] == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        Genre genre = loaded[id.intValue()];
+        return new Genre(genre.getId(), genre.getName());
+    }
+
+    @Override
+    public void updateGenresByFilm(Film film) {
+        storage.updateGenresByFilm(film);
+    }
+
+    @Override
+    public void addGenresToFilm(Film film) {
+        storage.addGenresToFilm(film);
+    }
+
+    @Override
+    public void addGenresToFilms(Collection<Film> films) {
+        storage.addGenresToFilms(films);
+    }
+
+    /**
+     * Метод перезагрузки справочника из базы данных после изменения жанров.
+     * До окончания загрузки поиск обслуживается прежним справочником
+     */
+    public void invalidate() {
+        load();
+    }
+
+    @Override
+    public String getName() {
+        return "genre-dictionary";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", Arrays.stream(genres).filter(Objects::nonNull).count());
+        metrics.put("loads", loads.sum());
+        metrics.put("hits", hits.sum());
+        metrics.put("misses", misses.sum());
+        return metrics;
+    }
+
+    private synchronized void load() {
+        List<Genre> all = storage.findAllGenres();
+        long maxId = all.stream().mapToLong(Genre::getId).max().orElse(0);
+        Genre[] byId = new Genre[(int) maxId + 1];
+        all.forEach(genre -> byId[genre.getId().intValue()] = genre);
+        genres = byId;
+        loads.increment();
+        log.info("Загружен справочник жанров: " + all.size() + " записей");
+    }
+}
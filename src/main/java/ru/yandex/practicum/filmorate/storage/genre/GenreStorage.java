@@ -3,7 +3,9 @@ package ru.yandex.practicum.filmorate.storage.genre;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -21,6 +23,14 @@ public interface GenreStorage {
      */
     Set<Genre> getGenresByFilm(Film film);
 
+    /**
+     * Метод получения списков жанров сразу для нескольких фильмов
+     *
+     * @param filmIds идентификаторы фильмов
+     * @return списки жанров, сгруппированные по идентификатору фильма
+     */
+    Map<Long, Set<Genre>> getGenresByFilms(Collection<Long> filmIds);
+
     /**
      * Метод получения всего списка жанров из хранилища
      *
@@ -37,16 +47,24 @@ public interface GenreStorage {
     Genre findGenreById(Long id);
 
     /**
-     * Метод обновления информации о жанрах фильма в хранилище жанров (удаление старых и добавление новых)
+     * Метод обновления информации о жанрах фильма в хранилище жанров:
+     * удаляются только убранные жанры и добавляются только новые
      *
      * @param film {@link Film}
      */
     void updateGenresByFilm(Film film);
 
     /**
-     * Метод добавления жанров фильма в хранилище жанров
+     * Метод добавления жанров фильма в хранилище жанров одним пакетом
      *
      * @param film {@link Film}
      */
     void addGenresToFilm(Film film);
+
+    /**
+     * Метод добавления жанров нескольких фильмов в хранилище жанров одним пакетом
+     *
+     * @param films список фильмов {@link Film}
+     */
+    void addGenresToFilms(Collection<Film> films);
 }
@@ -0,0 +1,254 @@
+package ru.yandex.practicum.filmorate.storage.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ScriptException;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Класс версионных миграций схемы базы данных.
+ * Миграции - SQL-скрипты db/migration/V{версия}__{описание}.sql, каждая применяется один раз
+ * в порядке версий и записывается в таблицу schema_history вместе с контрольной суммой.
+ * При старте контрольные суммы примененных миграций сверяются со скриптами, поэтому
+ * изменение уже примененного скрипта останавливает запуск. Если схема актуальна,
+ * скрипты не выполняются - запуск обходится чтением schema_history
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Slf4j
+@Lazy(false)
+@Component("schemaMigrator")
+public class SchemaMigrator implements InitializingBean {
+    /**
+     * Поле расположение скриптов миграций
+     */
+    public static final String MIGRATIONS_LOCATION = "classpath:db/migration/V*__*.sql";
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final String CREATE_HISTORY = "CREATE TABLE IF NOT EXISTS schema_history (" +
+            "version integer PRIMARY KEY, " +
+            "description varchar(200) NOT NULL, " +
+            "checksum bigint NOT NULL, " +
+            "installed_on timestamp NOT NULL, " +
+            "execution_ms bigint NOT NULL)";
+
+    /**
+     * Поле источник соединений
+     */
+    private final DataSource dataSource;
+    /**
+     * Поле расположение скриптов миграций
+     */
+    private final String location;
+    /**
+     * Поле признак выполнения миграций при старте
+     */
+    private final boolean enabled;
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param dataSource - источник соединений
+     * @param enabled    - выполнять ли миграции при старте
+     */
+    @Autowired
+    public SchemaMigrator(DataSource dataSource,
+                          @Value("${filmorate.migration.enabled:true}") boolean enabled) {
+        this(dataSource, MIGRATIONS_LOCATION, enabled);
+    }
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param dataSource - источник соединений
+     * @param location   - расположение скриптов миграций
+     * @param enabled    - выполнять ли миграции при старте
+     */
+    public SchemaMigrator(DataSource dataSource, String location, boolean enabled) {
+        this.dataSource = dataSource;
+        this.location = location;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (enabled) {
+            migrate();
+        }
+    }
+
+    /**
+     * Метод проверки примененных миграций и применения новых
+     *
+     * @return количество примененных миграций
+     * @throws IllegalStateException если примененная миграция изменена или отсутствует,
+     *                               новая миграция старее уже примененных или ее скрипт завершился ошибкой
+     */
+    public int migrate() {
+        List<Migration> migrations = loadMigrations();
+        try (Connection connection = dataSource.getConnection()) {
+            Map<Integer, Long> applied = readHistory(connection);
+            int current = applied.keySet().stream().max(Integer::compare).orElse(0);
+            List<Migration> pending = new ArrayList<>();
+            for (Migration migration : migrations) {
+                Long checksum = applied.remove(migration.version);
+                if (checksum == null) {
+                    if (migration.version < current) {
+                        throw new IllegalStateException("Миграция " + migration.name
+                                + " старее текущей версии схемы " + current);
+                    }
+                    pending.add(migration);
+                } else if (checksum != migration.checksum) {
+                    throw new IllegalStateException("Контрольная сумма миграции " + migration.name
+                            + " не совпадает с примененной");
+                }
+            }
+            if (!applied.isEmpty()) {
+                throw new IllegalStateException("Не найдены скрипты примененных миграций версий " + applied.keySet());
+            }
+            if (pending.isEmpty()) {
+                log.info("Схема базы данных актуальна, версия " + current);
+                return 0;
+            }
+            for (Migration migration : pending) {
+                apply(connection, migration);
+            }
+            return pending.size();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось выполнить миграции схемы базы данных", e);
+        }
+    }
+
+    /**
+     * Метод чтения примененных миграций. Таблица истории создается при первом запуске
+     *
+     * @return контрольные суммы по версиям примененных миграций
+     */
+    private Map<Integer, Long> readHistory(Connection connection) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_HISTORY);
+            try (ResultSet rs = statement.executeQuery("SELECT version, checksum FROM schema_history")) {
+                while (rs.next()) {
+                    applied.put(rs.getInt("version"), rs.getLong("checksum"));
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Метод применения миграции: скрипт и запись в историю выполняются в одной транзакции.
+     * Команды DDL в H2 фиксируются сразу, поэтому скрипты пишутся повторяемыми (IF NOT EXISTS)
+     */
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        long start = System.nanoTime();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            ScriptUtils.executeSqlScript(connection, new EncodedResource(migration.resource, StandardCharsets.UTF_8));
+            String sql = "INSERT INTO schema_history (version, description, checksum, installed_on, execution_ms) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+            long executionMs = (System.nanoTime() - start) / 1_000_000;
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setInt(1, migration.version);
+                statement.setString(2, migration.description);
+                statement.setLong(3, migration.checksum);
+                statement.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                statement.setLong(5, executionMs);
+                statement.executeUpdate();
+            }
+            connection.commit();
+            log.info("Применена миграция " + migration.name + " за " + executionMs + " мс");
+        } catch (SQLException | ScriptException e) {
+            connection.rollback();
+            log.error("Ошибка миграции " + migration.name + ": " + e.getMessage());
+            throw new IllegalStateException("Не удалось применить миграцию " + migration.name, e);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Метод загрузки скриптов миграций, упорядоченных по версии
+     */
+    private List<Migration> loadMigrations() {
+        List<Migration> migrations = new ArrayList<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(location)) {
+                Matcher name = FILE_NAME.matcher(resource.getFilename());
+                if (!name.matches()) {
+                    throw new IllegalStateException("Имя миграции " + resource.getFilename()
+                            + " не соответствует шаблону V{версия}__{описание}.sql");
+                }
+                String script = StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+                migrations.add(new Migration(Integer.parseInt(name.group(1)),
+                        name.group(2).replace('_', ' '), resource.getFilename(), resource, checksum(script)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать скрипты миграций", e);
+        }
+        migrations.sort(Comparator.comparingInt(migration -> migration.version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version == migrations.get(i - 1).version) {
+                throw new IllegalStateException("Две миграции с версией " + migrations.get(i).version);
+            }
+        }
+        return migrations;
+    }
+
+    /**
+     * Метод подсчета контрольной суммы скрипта без учета вида переводов строк
+     */
+    private static long checksum(String script) {
+        CRC32 crc = new CRC32();
+        crc.update(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /**
+     * Класс скрипта миграции
+     */
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final String name;
+        private final Resource resource;
+        private final long checksum;
+
+        private Migration(int version, String description, String name, Resource resource, long checksum) {
+            this.version = version;
+            this.description = description;
+            this.name = name;
+            this.resource = resource;
+            this.checksum = checksum;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.storage.rating;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.metrics.MetricsSource;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс справочника рейтингов в памяти приложения поверх хранилища в базе данных.
+ * Справочник целиком загружается при создании бина, в том числе при ленивой инициализации контекста,
+ * и заново методом {@link #invalidate()}. Рейтинги хранятся в массиве по идентификатору,
+ * поэтому поиск не обращается к базе данных и не берет блокировок
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Slf4j
+@Primary
+@Lazy(false)
+@Component
+public class MpaDictionaryStorage implements MpaStorage, MetricsSource, InitializingBean {
+    /**
+     * Поле хранилище рейтингов в базе данных
+     */
+    private final MpaStorage storage;
+    /**
+     * Поле количество обращений, обслуженных из памяти
+     */
+    private final LongAdder hits = new LongAdder();
+    /**
+     * Поле количество поисков по идентификатору, которого нет в справочнике
+     */
+    private final LongAdder misses = new LongAdder();
+    /**
+     * Поле количество загрузок справочника из базы данных
+     */
+    private final LongAdder loads = new LongAdder();
+    /**
+     * Поле загруженный справочник, рейтинг с идентификатором id лежит в элементе id
+     */
+    private volatile Mpa[] ratings = new Mpa[0];
+
+    /**
+     * Конструктор - создание нового объекта с определенными значениями
+     *
+     * @param storage - хранилище рейтингов в базе данных
+     */
+    public MpaDictionaryStorage(@Qualifier("mpaDbStorage") MpaStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        load();
+    }
+
+    @Override
+    public List<Mpa> findAllMpa() {
+        hits.increment();
+        List<Mpa> result = new ArrayList<>();
+        for (Mpa mpa : ratings) {
+            if (mpa != null) {
+                result.add(copy(mpa));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Mpa findMpaById(Long id) {
+        Mpa[] loaded = ratings;
+        if (id == null || id < 0 || id >= loaded.length || loaded[id.intValue()] == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(loaded[id.intValue()]);
+    }
+
+    /**
+     * Метод перезагрузки справочника из базы данных после изменения рейтингов.
+     * До окончания загрузки поиск обслуживается прежним справочником
+     */
+    public void invalidate() {
+        load();
+    }
+
+    @Override
+    public String getName() {
+        return "mpa-dictionary";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", Arrays.stream(ratings).filter(Objects::nonNull).count());
+        metrics.put("loads", loads.sum());
+        metrics.put("hits", hits.sum());
+        metrics.put("misses", misses.sum());
+        return metrics;
+    }
+
+    private synchronized void load() {
+        List<Mpa> all = storage.findAllMpa();
+        long maxId = all.stream().mapToLong(Mpa::getId).max().orElse(0);
+        Mpa[] byId = new Mpa[(int) maxId + 1];
+        all.forEach(mpa -> byId[mpa.getId().intValue()] = mpa);
+        ratings = byId;
+        loads.increment();
+        log.info("Загружен справочник рейтингов: " + all.size() + " записей");
+    }
+
+    private static Mpa copy(Mpa mpa) {
+        Mpa copy = new Mpa();
+        copy.setId(mpa.getId());
+        copy.setName(mpa.getName());
+        copy.setDescription(mpa.getDescription());
+        return copy;
+    }
+}
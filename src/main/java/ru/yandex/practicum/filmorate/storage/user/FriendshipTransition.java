@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+/**
+ * Перечисление результатов перехода дружбы пары пользователей из одного состояния в другое
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+public enum FriendshipTransition {
+    /**
+     * Пользователь отправил новый запрос в друзья
+     */
+    REQUESTED,
+    /**
+     * Пользователь ответил на встречный запрос, дружба подтверждена
+     */
+    CONFIRMED,
+    /**
+     * Запрос в друзья уже был отправлен ранее, состояние не изменилось
+     */
+    ALREADY_REQUESTED,
+    /**
+     * Пользователи уже являются друзьями, состояние не изменилось
+     */
+    ALREADY_FRIENDS,
+    /**
+     * Неподтвержденный запрос в друзья удален
+     */
+    DELETED,
+    /**
+     * Подтвержденная дружба снова стала односторонней
+     */
+    UNCONFIRMED,
+    /**
+     * Пользователи не были друзьями, состояние не изменилось
+     */
+    NOT_FRIENDS,
+    /**
+     * Пользователь, выполняющий переход, не найден
+     */
+    USER_NOT_FOUND,
+    /**
+     * Пользователь, над которым выполняется переход, не найден
+     */
+    FRIEND_NOT_FOUND
+}
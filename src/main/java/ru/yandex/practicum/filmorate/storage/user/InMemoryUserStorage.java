@@ -4,90 +4,233 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.User;
 
-
 import java.util.*;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Класс потокобезопасного хранилища пользователей в памяти.
+ * Список друзей каждого пользователя хранится отсортированным массивом long ({@link SortedLongArrays}) -
+ * 8 байт на связь вместо упакованных Long в HashSet. Массив не изменяется после создания:
+ * переход дружбы выполняется под блокировками обоих пользователей и заменяет массив новым,
+ * а чтение обходится без блокировок. Наружу отдаются копии пользователей
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
 @Slf4j
 @Component
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
-    private static Long numberId = 1L;
+    /**
+     * Количество блокировок, между которыми распределяются пользователи
+     */
+    private static final int LOCK_STRIPES = 64;
+
+    private final ConcurrentNavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+    /**
+     * Друзья пользователя: те, кого он добавил сам, и те, кто подтвердил его запрос
+     */
+    private final ConcurrentMap<Long, long[]> friends = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final AtomicLong numberId = new AtomicLong();
+
+    public InMemoryUserStorage() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
 
     public List<User> findAllUsers() {
-        return new ArrayList<>(users.values());
+        List<User> result = new ArrayList<>();
+        users.values().forEach(user -> result.add(copy(user)));
+        return result;
+    }
+
+    public List<User> findUsers(Long after, int limit) {
+        List<User> result = new ArrayList<>();
+        for (User user : users.tailMap(after == null ? 0 : after, false).values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(copy(user));
+        }
+        return result;
+    }
+
+    public void streamUsers(Consumer<User> consumer) {
+        users.values().forEach(user -> consumer.accept(copy(user)));
+    }
+
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        return getUsers(SortedLongArrays.of(ids));
+    }
+
+    public List<User> getUsersByEmailsOrLogins(Collection<String> emails, Collection<String> logins) {
+        Set<String> emailSet = new HashSet<>(emails);
+        Set<String> loginSet = new HashSet<>(logins);
+        List<User> result = new ArrayList<>();
+        for (User user : users.values()) {
+            if (emailSet.contains(user.getEmail()) || loginSet.contains(user.getLogin())) {
+                result.add(copy(user));
+            }
+        }
+        return result;
     }
 
     public User createUser(User user) {
-        user.setId(numberId);
-        numberId++;
+        long id = numberId.incrementAndGet();
+        user.setId(id);
         user.setFriends(new HashSet<>());
-        users.put(user.getId(), user);
+        friends.put(id, SortedLongArrays.EMPTY);
+        users.put(id, copy(user));
         return user;
     }
 
+    public List<User> createUsers(List<User> users) {
+        users.forEach(this::createUser);
+        return users;
+    }
+
     public User updateUser(User user) {
-        if (user.getFriends() == null) {
+        // Друзья хранятся отдельно и при обновлении пользователя не меняются
+        if (users.replace(user.getId(), copy(user)) != null) {
+            user.setFriends(getIdFriendsByUser(user));
+        } else if (user.getFriends() == null) {
             user.setFriends(new HashSet<>());
         }
-        users.put(user.getId(), user);
         return user;
     }
 
     public void deleteAllUsers() {
         users.clear();
-        numberId = 1L;
+        friends.clear();
+        numberId.set(0);
     }
 
     public User getUserById(Long id) {
-        return users.getOrDefault(id, null);
+        User user = users.get(id);
+        return user == null ? null : copy(user);
     }
 
-    public void addToFriends(Long idUser, Long idFriend) {
-        users.get(idFriend).getFriends().add(idUser);
+    public FriendshipTransition addToFriends(Long idUser, Long idFriend) {
+        // Блокировки всегда берутся в порядке номеров, чтобы встречные переходы не заблокировали друг друга
+        int userStripe = stripe(idUser);
+        int friendStripe = stripe(idFriend);
+        Object first = locks[Math.min(userStripe, friendStripe)];
+        Object second = locks[Math.max(userStripe, friendStripe)];
+        synchronized (first) {
+            synchronized (second) {
+                FriendshipTransition missing = checkUsers(idUser, idFriend);
+                if (missing != null) {
+                    return missing;
+                }
+                long[] userFriends = getFriends(idUser);
+                boolean mutual = SortedLongArrays.contains(getFriends(idFriend), idUser);
+                if (SortedLongArrays.contains(userFriends, idFriend)) {
+                    return mutual ? FriendshipTransition.ALREADY_FRIENDS : FriendshipTransition.ALREADY_REQUESTED;
+                }
+                friends.put(idUser, SortedLongArrays.add(userFriends, idFriend));
+                return mutual ? FriendshipTransition.CONFIRMED : FriendshipTransition.REQUESTED;
+            }
+        }
     }
 
-    public void deleteFromFriends(Long idUser, Long idFriend) {
-        users.get(idFriend).getFriends().remove(idUser);
+    public FriendshipTransition deleteFromFriends(Long idUser, Long idFriend) {
+        // Блокировки всегда берутся в порядке номеров, чтобы встречные переходы не заблокировали друг друга
+        int userStripe = stripe(idUser);
+        int friendStripe = stripe(idFriend);
+        Object first = locks[Math.min(userStripe, friendStripe)];
+        Object second = locks[Math.max(userStripe, friendStripe)];
+        synchronized (first) {
+            synchronized (second) {
+                FriendshipTransition missing = checkUsers(idUser, idFriend);
+                if (missing != null) {
+                    return missing;
+                }
+                long[] userFriends = getFriends(idUser);
+                if (!SortedLongArrays.contains(userFriends, idFriend)) {
+                    return FriendshipTransition.NOT_FRIENDS;
+                }
+                friends.put(idUser, SortedLongArrays.remove(userFriends, idFriend));
+                // idUser остается в списке друзей idFriend, если тот добавлял его сам
+                return SortedLongArrays.contains(getFriends(idFriend), idUser)
+                        ? FriendshipTransition.UNCONFIRMED : FriendshipTransition.DELETED;
+            }
+        }
     }
 
     public List<User> getFriendsByUser(Long idUser) {
-        List<User> friends = new ArrayList<>();
-        if (!users.get(idUser).getFriends().isEmpty()) {
-            for (Long cur : users.get(idUser).getFriends()) {
-                friends.add(users.get(cur));
-            }
-        }
-        return friends;
+        return getUsers(getFriends(idUser));
     }
 
     public List<User> getCommonFriends(Long idUser, Long otherId) {
-        List<User> commonFriends = new ArrayList<>();
-        if (!users.get(idUser).getFriends().isEmpty() || !users.get(otherId).getFriends().isEmpty()) {
-            for (Long cur : users.get(idUser).getFriends()) {
-                if (users.get(otherId).getFriends().contains(cur)) {
-                    commonFriends.add(users.get(cur));
-                }
-            }
-        }
-        return commonFriends;
+        return getUsers(SortedLongArrays.intersect(getFriends(idUser), getFriends(otherId)));
     }
 
     public Set<Long> getIdFriendsByUser(User user) {
-        return users.get(user.getId()).getFriends();
+        long[] ids = getFriends(user.getId());
+        Set<Long> result = new HashSet<>(ids.length * 2);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    public Map<Long, Set<Long>> getIdFriendsByUsers(Collection<Long> userIds) {
+        Map<Long, Set<Long>> result = new HashMap<>();
+        for (Long id : userIds) {
+            long[] ids = getFriends(id);
+            Set<Long> userFriends = new HashSet<>(ids.length * 2);
+            for (long friendId : ids) {
+                userFriends.add(friendId);
+            }
+            result.put(id, userFriends);
+        }
+        return result;
     }
 
-    public boolean checkFriendship(Long userId, Long friendId, Boolean confirmed) {
-        return users.get(userId).getFriends().contains(friendId) == confirmed;
+    public long[] getFriendIds(Long idUser) {
+        // Массив не изменяется после создания, поэтому его можно отдать без копирования
+        return getFriends(idUser);
     }
 
-    public void acceptToFriends(Long idUser, Long idFriend) {
-        users.get(idFriend).getFriends().add(idUser);
+    private FriendshipTransition checkUsers(Long idUser, Long idFriend) {
+        if (!users.containsKey(idUser)) {
+            return FriendshipTransition.USER_NOT_FOUND;
+        }
+        if (!users.containsKey(idFriend)) {
+            return FriendshipTransition.FRIEND_NOT_FOUND;
+        }
+        return null;
     }
 
-    public void deleteFromConfirmFriends(Long idUser, Long idFriend) {
-        users.get(idFriend).getFriends().remove(idUser);
+    private long[] getFriends(Long id) {
+        return friends.getOrDefault(id, SortedLongArrays.EMPTY);
     }
-}
 
+    private List<User> getUsers(long[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = users.get(id);
+            if (user != null) {
+                result.add(copy(user));
+            }
+        }
+        return result;
+    }
 
+    private int stripe(long id) {
+        return Long.hashCode(id) & (LOCK_STRIPES - 1);
+    }
 
+    private User copy(User user) {
+        User copy = new User(user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        copy.setId(user.getId());
+        copy.setFriends(getIdFriendsByUser(user));
+        return copy;
+    }
+}
@@ -0,0 +1,172 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Класс операций над отсортированными по возрастанию массивами long без повторов.
+ * Такой массив хранит множество идентификаторов по 8 байт на элемент и не изменяется после создания:
+ * добавление и удаление возвращают новый массив, поэтому его можно читать без блокировок
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+public final class SortedLongArrays {
+    /**
+     * Поле пустой массив
+     */
+    public static final long[] EMPTY = new long[0];
+    /**
+     * Поле во сколько раз один массив должен быть длиннее другого, чтобы пересечение
+     * выполнялось поиском с удвоением шага вместо линейного слияния
+     */
+    private static final int GALLOP_RATIO = 16;
+
+    private SortedLongArrays() {
+    }
+
+    /**
+     * Метод создания массива из коллекции идентификаторов
+     *
+     * @param values идентификаторы
+     * @return отсортированный массив без повторов
+     */
+    public static long[] of(Collection<Long> values) {
+        long[] result = new long[values.size()];
+        int size = 0;
+        for (Long value : values) {
+            result[size++] = value;
+        }
+        Arrays.sort(result);
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || result[unique - 1] != result[i]) {
+                result[unique++] = result[i];
+            }
+        }
+        return unique == result.length ? result : Arrays.copyOf(result, unique);
+    }
+
+    /**
+     * Метод проверки наличия значения в массиве
+     *
+     * @param array отсортированный массив
+     * @param value значение
+     * @return true, если значение есть в массиве
+     */
+    public static boolean contains(long[] array, long value) {
+        return Arrays.binarySearch(array, value) >= 0;
+    }
+
+    /**
+     * Метод добавления значения
+     *
+     * @param array отсортированный массив
+     * @param value значение
+     * @return новый массив со значением или тот же массив, если значение уже было
+     */
+    public static long[] add(long[] array, long value) {
+        int index = Arrays.binarySearch(array, value);
+        if (index >= 0) {
+            return array;
+        }
+        int insertAt = -index - 1;
+        long[] result = new long[array.length + 1];
+        System.arraycopy(array, 0, result, 0, insertAt);
+        result[insertAt] = value;
+        System.arraycopy(array, insertAt, result, insertAt + 1, array.length - insertAt);
+        return result;
+    }
+
+    /**
+     * Метод удаления значения
+     *
+     * @param array отсортированный массив
+     * @param value значение
+     * @return новый массив без значения или тот же массив, если значения не было
+     */
+    public static long[] remove(long[] array, long value) {
+        int index = Arrays.binarySearch(array, value);
+        if (index < 0) {
+            return array;
+        }
+        long[] result = new long[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    /**
+     * Метод пересечения двух массивов. Массивы близкой длины сливаются линейно за O(n + m),
+     * для короткого и длинного массива каждый элемент короткого ищется в длинном
+     * поиском с удвоением шага за O(n log(m / n))
+     *
+     * @param first  отсортированный массив
+     * @param second отсортированный массив
+     * @return отсортированный массив общих значений
+     */
+    public static long[] intersect(long[] first, long[] second) {
+        long[] small = first.length <= second.length ? first : second;
+        long[] large = small == first ? second : first;
+        if (small.length == 0) {
+            return EMPTY;
+        }
+        long[] result = new long[small.length];
+        int size = 0;
+        if ((long) small.length * GALLOP_RATIO < large.length) {
+            int from = 0;
+            for (long value : small) {
+                from = gallop(large, from, value);
+                if (from == large.length) {
+                    break;
+                }
+                if (large[from] == value) {
+                    result[size++] = value;
+                    from++;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < small.length && j < large.length) {
+                if (small[i] < large[j]) {
+                    i++;
+                } else if (small[i] > large[j]) {
+                    j++;
+                } else {
+                    result[size++] = small[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Метод поиска первой позиции не меньше значения начиная с from: шаг удваивается,
+     * пока не будет пройдено значение, затем найденный отрезок делится пополам
+     *
+     * @return позиция первого элемента не меньше value или длина массива
+     */
+    private static int gallop(long[] array, int from, long value) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < array.length && array[high] < value) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, array.length);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (array[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -1,25 +1,57 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StreamingQuery;
 
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
 
 @Component
 public class UserDbStorage implements UserStorage {
+    /**
+     * Количество строк, которое драйвер читает за одно обращение при потоковой выгрузке
+     */
+    private static final int STREAM_FETCH_SIZE = 500;
+    /**
+     * Максимальное количество идентификаторов в одном условии IN
+     */
+    private static final int IN_CLAUSE_BATCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    /**
+     * Вставка пользователя, подготовленная один раз: список колонок задан явно,
+     * поэтому метаданные таблицы не читаются, а после компиляции объект потокобезопасен
+     */
+    private final SimpleJdbcInsert userInsert;
 
     @Autowired
     public UserDbStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.userInsert = new SimpleJdbcInsert(jdbcTemplate);
+        this.userInsert.withTableName("users")
+                .usingColumns("email", "login", "name", "birthday")
+                .usingGeneratedKeyColumns("user_id")
+                .withoutTableColumnMetaDataAccess();
+        this.userInsert.compile();
     }
 
     public List<User> findAllUsers() {
@@ -27,21 +59,105 @@ public class UserDbStorage implements UserStorage {
         return jdbcTemplate.query(sql, this::makeUser);
     }
 
-    public User createUser(User user) {
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("users")
-                .usingGeneratedKeyColumns("user_id");
+    public List<User> findUsers(Long after, int limit) {
+        String sql = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+        return jdbcTemplate.query(sql, this::makeUser, after == null ? 0 : after, limit);
+    }
+
+    public void streamUsers(Consumer<User> consumer) {
+        // Друзья собираются в массивы коррелированными подзапросами,
+        // поэтому каждая строка курсора - полностью заполненный пользователь
+        String sql = "SELECT u.*, " +
+                "(SELECT ARRAY_AGG(f.user_id2) FROM friendship AS f WHERE f.user_id1 = u.user_id) requested, " +
+                "(SELECT ARRAY_AGG(f.user_id1) FROM friendship AS f " +
+                "WHERE f.user_id2 = u.user_id AND f.confirmed = true) confirmed " +
+                "FROM users AS u " +
+                "ORDER BY u.user_id";
+        StreamingQuery.query(jdbcTemplate, sql, STREAM_FETCH_SIZE, rs -> {
+            User user = makeUser(rs, 0);
+            for (Object friendId : getArray(rs, "requested")) {
+                user.getFriends().add(((Number) friendId).longValue());
+            }
+            for (Object friendId : getArray(rs, "confirmed")) {
+                user.getFriends().add(((Number) friendId).longValue());
+            }
+            consumer.accept(user);
+        });
+    }
+
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        long[] sortedIds = SortedLongArrays.of(ids);
+        List<User> users = new ArrayList<>(sortedIds.length);
+        String sql = "SELECT * FROM users WHERE user_id IN (:ids) ORDER BY user_id";
+        for (int from = 0; from < sortedIds.length; from += IN_CLAUSE_BATCH_SIZE) {
+            List<Long> batch = new ArrayList<>(IN_CLAUSE_BATCH_SIZE);
+            for (int i = from; i < Math.min(from + IN_CLAUSE_BATCH_SIZE, sortedIds.length); i++) {
+                batch.add(sortedIds[i]);
+            }
+            users.addAll(namedParameterJdbcTemplate.query(sql, Map.of("ids", batch), this::makeUser));
+        }
+        return users;
+    }
+
+    public List<User> getUsersByEmailsOrLogins(Collection<String> emails, Collection<String> logins) {
+        // Два условия объединены через UNION, чтобы каждое читало свой уникальный индекс
+        String sql = "SELECT * FROM users WHERE email IN (:emails) " +
+                "UNION " +
+                "SELECT * FROM users WHERE login IN (:logins)";
+        List<String> emailList = new ArrayList<>(emails);
+        List<String> loginList = new ArrayList<>(logins);
+        List<User> users = new ArrayList<>();
+        for (int from = 0; from < Math.max(emailList.size(), loginList.size()); from += IN_CLAUSE_BATCH_SIZE) {
+            Map<String, Object> params = new HashMap<>();
+            // Пустой список в IN недопустим, а null не совпадает ни с одной строкой
+            params.put("emails", slice(emailList, from));
+            params.put("logins", slice(loginList, from));
+            users.addAll(namedParameterJdbcTemplate.query(sql, params, this::makeUser));
+        }
+        return users;
+    }
 
+    public User createUser(User user) {
         Map<String, Object> values = new HashMap<>();
         values.put("email", user.getEmail());
         values.put("login", user.getLogin());
         values.put("name", user.getName());
         values.put("birthday", user.getBirthday());
 
-        user.setId(simpleJdbcInsert.executeAndReturnKey(values).longValue());
+        user.setId(userInsert.executeAndReturnKey(values).longValue());
         return user;
     }
 
+    public List<User> createUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        String sql = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
+        return jdbcTemplate.execute((ConnectionCallback<List<User>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql, new String[]{"user_id"})) {
+                for (User user : users) {
+                    statement.setString(1, user.getEmail());
+                    statement.setString(2, user.getLogin());
+                    statement.setString(3, user.getName());
+                    statement.setDate(4, Date.valueOf(user.getBirthday()));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                int index = 0;
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next() && index < users.size()) {
+                        users.get(index++).setId(keys.getLong(1));
+                    }
+                }
+                if (index != users.size()) {
+                    throw new DataRetrievalFailureException("Получено " + index
+                            + " сгенерированных идентификаторов вместо " + users.size());
+                }
+                return users;
+            }
+        });
+    }
+
     public User updateUser(User user) {
         String sql = "UPDATE users " +
                 "SET login = ?, email = ?, name = ?, birthday = ? " +
@@ -51,6 +167,7 @@ public class UserDbStorage implements UserStorage {
         return user;
     }
 
+    @Transactional
     public void deleteAllUsers() {
         String sql = "DELETE FROM users";
         jdbcTemplate.update(sql);
@@ -67,14 +184,54 @@ public class UserDbStorage implements UserStorage {
         return result.get(0);
     }
 
-    public void addToFriends(Long idUser, Long idFriend) {
+    @Transactional
+    public FriendshipTransition addToFriends(Long idUser, Long idFriend) {
+        FriendshipState state = getFriendshipState(idUser, idFriend);
+        if (!state.userExists) {
+            return FriendshipTransition.USER_NOT_FOUND;
+        }
+        if (!state.friendExists) {
+            return FriendshipTransition.FRIEND_NOT_FOUND;
+        }
+        if (state.outgoing != null) {
+            return state.outgoing ? FriendshipTransition.ALREADY_FRIENDS : FriendshipTransition.ALREADY_REQUESTED;
+        }
+        if (state.incoming != null) {
+            if (state.incoming) {
+                return FriendshipTransition.ALREADY_FRIENDS;
+            }
+            // Встречный запрос уже есть - подтверждаем его
+            setConfirmed(idFriend, idUser, true);
+            return FriendshipTransition.CONFIRMED;
+        }
         String sql = "INSERT INTO friendship (user_id1, user_id2, confirmed) VALUES(?, ?, ?)";
         jdbcTemplate.update(sql, idUser, idFriend, false);
+        return FriendshipTransition.REQUESTED;
     }
 
-    public void deleteFromFriends(Long idUser, Long idFriend) {
-        String sql = "DELETE FROM friendship WHERE user_id1 = ? AND user_id2 = ?";
-        jdbcTemplate.update(sql, idUser, idFriend);
+    @Transactional
+    public FriendshipTransition deleteFromFriends(Long idUser, Long idFriend) {
+        FriendshipState state = getFriendshipState(idUser, idFriend);
+        if (!state.userExists) {
+            return FriendshipTransition.USER_NOT_FOUND;
+        }
+        if (!state.friendExists) {
+            return FriendshipTransition.FRIEND_NOT_FOUND;
+        }
+        if (Boolean.FALSE.equals(state.outgoing)) {
+            String sql = "DELETE FROM friendship WHERE user_id1 = ? AND user_id2 = ?";
+            jdbcTemplate.update(sql, idUser, idFriend);
+            return FriendshipTransition.DELETED;
+        }
+        if (Boolean.TRUE.equals(state.outgoing)) {
+            setConfirmed(idUser, idFriend, false);
+            return FriendshipTransition.UNCONFIRMED;
+        }
+        if (Boolean.TRUE.equals(state.incoming)) {
+            setConfirmed(idFriend, idUser, false);
+            return FriendshipTransition.UNCONFIRMED;
+        }
+        return FriendshipTransition.NOT_FRIENDS;
     }
 
     public List<User> getFriendsByUser(Long idUser) {
@@ -88,20 +245,8 @@ public class UserDbStorage implements UserStorage {
     }
 
     public List<User> getCommonFriends(Long idUser, Long otherId) {
-        String sql = "WITH u1 AS " +
-                "(SELECT u.* " +
-                "FROM friendship AS f " +
-                "JOIN users AS u ON f.user_id2 = u.user_id " +
-                "WHERE f.user_id1 = ? ), " +
-                "u2 AS " +
-                "(SELECT u.* " +
-                "FROM friendship AS f " +
-                "JOIN users AS u ON f.user_id2 = u.user_id " +
-                "WHERE f.user_id1 = ? ) " +
-                "SELECT u1.* " +
-                "FROM u1 " +
-                "JOIN u2 ON u1.user_id = u2.user_id";
-        return jdbcTemplate.query(sql, this::makeUser, idUser, otherId);
+        // Пересекаются отсортированные списки идентификаторов, строки читаются только для общих друзей
+        return getUsersByIds(toList(SortedLongArrays.intersect(getFriendIds(idUser), getFriendIds(otherId))));
     }
 
     public Set<Long> getIdFriendsByUser(User user) {
@@ -115,25 +260,92 @@ public class UserDbStorage implements UserStorage {
         return friends;
     }
 
-    public boolean checkFriendship(Long userId, Long friendId, Boolean confirmed) {
-        String sql = "SELECT * FROM friendship " +
-                "WHERE user_id1 = ? AND user_id2 = ? AND  confirmed = ?";
-        SqlRowSet rows = jdbcTemplate.queryForRowSet(sql, userId, friendId, confirmed);
-        return rows.next();
+    public Map<Long, Set<Long>> getIdFriendsByUsers(Collection<Long> userIds) {
+        Map<Long, Set<Long>> friends = new HashMap<>();
+        userIds.forEach(id -> friends.put(id, new HashSet<>()));
+        List<Long> ids = new ArrayList<>(friends.keySet());
+        // Обе ветви дружбы читаются одним запросом на пачку пользователей и раскладываются по ним в памяти
+        String sql = "SELECT user_id1 owner_id, user_id2 friend_id FROM friendship WHERE user_id1 IN (:ids) " +
+                "UNION ALL " +
+                "SELECT user_id2 owner_id, user_id1 friend_id FROM friendship " +
+                "WHERE user_id2 IN (:ids) AND confirmed = true";
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + IN_CLAUSE_BATCH_SIZE, ids.size()));
+            namedParameterJdbcTemplate.query(sql, Map.of("ids", batch), (RowCallbackHandler) rs ->
+                    friends.get(rs.getLong("owner_id")).add(rs.getLong("friend_id")));
+        }
+        return friends;
+    }
+
+    public long[] getFriendIds(Long idUser) {
+        String sql = "SELECT user_id2 id FROM friendship WHERE user_id1 = ? " +
+                "UNION " +
+                "SELECT user_id1 id FROM friendship WHERE user_id2 = ? AND confirmed = true " +
+                "ORDER BY id";
+        long[][] ids = {new long[16]};
+        int[] size = {0};
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            if (size[0] == ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], size[0] * 2);
+            }
+            ids[0][size[0]++] = rs.getLong("id");
+        }, idUser, idUser);
+        return Arrays.copyOf(ids[0], size[0]);
+    }
+
+    /**
+     * Метод чтения состояния дружбы пары пользователей одним запросом:
+     * по строке на каждого найденного пользователя вместе с его записью о дружбе с другим пользователем
+     *
+     * @param idUser   - идентификатор пользователя, выполняющего переход
+     * @param idFriend - идентификатор второго пользователя пары
+     * @return состояние пары {@link FriendshipState}
+     */
+    private FriendshipState getFriendshipState(Long idUser, Long idFriend) {
+        String sql = "SELECT u.user_id, f.confirmed " +
+                "FROM users AS u " +
+                "LEFT JOIN friendship AS f ON f.user_id1 = u.user_id " +
+                "AND f.user_id2 = CASE WHEN u.user_id = ? THEN ? ELSE ? END " +
+                "WHERE u.user_id IN (?, ?)";
+        FriendshipState state = new FriendshipState();
+        jdbcTemplate.query(sql, rs -> {
+            long id = rs.getLong("user_id");
+            Boolean confirmed = rs.getObject("confirmed") == null ? null : rs.getBoolean("confirmed");
+            if (id == idUser) {
+                state.userExists = true;
+                state.outgoing = confirmed;
+            }
+            if (id == idFriend) {
+                state.friendExists = true;
+                state.incoming = confirmed;
+            }
+        }, idUser, idFriend, idUser, idUser, idFriend);
+        return state;
+    }
+
+    private void setConfirmed(Long userId1, Long userId2, boolean confirmed) {
+        String sql = "UPDATE friendship SET confirmed = ? WHERE user_id1 = ? AND user_id2 = ?";
+        jdbcTemplate.update(sql, confirmed, userId1, userId2);
+    }
+
+    private static List<String> slice(List<String> values, int from) {
+        if (from >= values.size()) {
+            return Collections.singletonList(null);
+        }
+        return values.subList(from, Math.min(from + IN_CLAUSE_BATCH_SIZE, values.size()));
     }
 
-    public void acceptToFriends(Long idFriend, Long idUser) {
-        String sql = "UPDATE friendship " +
-                "SET user_id1 = ?, user_id2 = ?, confirmed = ? " +
-                "WHERE user_id1 = ? AND user_id2 = ?";
-        jdbcTemplate.update(sql, idFriend, idUser, true, idFriend, idUser);
+    private List<Long> toList(long[] ids) {
+        List<Long> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
     }
 
-    public void deleteFromConfirmFriends(Long idUser, Long idFriend) {
-        String sql = "UPDATE friendship " +
-                "SET user_id1 = ?, user_id2 = ?, confirmed = ? " +
-                "WHERE user_id1 = ? AND user_id2 = ?";
-        jdbcTemplate.update(sql, idUser, idFriend, false, idUser, idFriend);
+    private Object[] getArray(ResultSet resultSet, String column) throws SQLException {
+        Array array = resultSet.getArray(column);
+        return array == null ? new Object[0] : (Object[]) array.getArray();
     }
 
     private User makeUser(ResultSet rs, int rowNum) throws SQLException {
@@ -147,4 +359,15 @@ public class UserDbStorage implements UserStorage {
         user.setId(id);
         return user;
     }
+
+    /**
+     * Класс состояния дружбы пары пользователей: наличие пользователей
+     * и подтверждение записей о дружбе в каждую сторону (null - записи нет)
+     */
+    private static class FriendshipState {
+        private boolean userExists;
+        private boolean friendExists;
+        private Boolean outgoing;
+        private Boolean incoming;
+    }
 }
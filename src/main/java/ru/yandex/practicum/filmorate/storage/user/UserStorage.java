@@ -2,8 +2,11 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс хранилища пользователей
@@ -19,6 +22,40 @@ public interface UserStorage {
      */
     List<User> findAllUsers();
 
+    /**
+     * Метод получения страницы пользователей из хранилища по курсору
+     *
+     * @param after идентификатор последнего пользователя предыдущей страницы (null - с начала)
+     * @param limit максимальное количество пользователей на странице
+     * @return пользователи с идентификатором больше after, упорядоченные по идентификатору
+     */
+    List<User> findUsers(Long after, int limit);
+
+    /**
+     * Метод потоковой выгрузки всех пользователей из хранилища вместе с идентификаторами друзей.
+     * Пользователи передаются обработчику по одному в порядке идентификаторов, не накапливаясь в памяти
+     *
+     * @param consumer обработчик пользователей
+     */
+    void streamUsers(Consumer<User> consumer);
+
+    /**
+     * Метод получения пользователей по идентификаторам из хранилища
+     *
+     * @param ids идентификаторы пользователей
+     * @return найденные пользователи, упорядоченные по идентификатору (без заполненных друзей)
+     */
+    List<User> getUsersByIds(Collection<Long> ids);
+
+    /**
+     * Метод получения пользователей, у которых email или логин входит в переданные наборы
+     *
+     * @param emails адреса электронной почты
+     * @param logins логины
+     * @return найденные пользователи без заполненных друзей
+     */
+    List<User> getUsersByEmailsOrLogins(Collection<String> emails, Collection<String> logins);
+
     /**
      * Метод добавления пользователя в хранилище
      *
@@ -27,6 +64,14 @@ public interface UserStorage {
      */
     User createUser(User user);
 
+    /**
+     * Метод пакетного добавления пользователей в хранилище
+     *
+     * @param users список пользователей {@link User}
+     * @return тот же список пользователей с добавленными id
+     */
+    List<User> createUsers(List<User> users);
+
     /**
      * Метод обновления пользователя в хранилище
      *
@@ -49,20 +94,26 @@ public interface UserStorage {
     User getUserById(Long id);
 
     /**
-     * Метод добавления пользователей из хранилища в список друзей друг друга
+     * Метод добавления пользователей из хранилища в список друзей друг друга.
+     * Текущее состояние пары читается одним запросом, после чего выполняется не более одной записи:
+     * новый запрос в друзья либо подтверждение встречного запроса
      *
      * @param idUser   - идентификатор пользователя, который отправляет запрос на добавление,
      * @param idFriend - идентификатор пользователя, которого добавляют в друзья
+     * @return результат перехода {@link FriendshipTransition}
      */
-    void addToFriends(Long idUser, Long idFriend);
+    FriendshipTransition addToFriends(Long idUser, Long idFriend);
 
     /**
-     * Метод удаления пользователей из хранилища из списка друзей друг друга
+     * Метод удаления пользователей из хранилища из списка друзей друг друга.
+     * Текущее состояние пары читается одним запросом, после чего выполняется не более одной записи:
+     * удаление неподтвержденного запроса либо снятие подтверждения дружбы
      *
      * @param idUser   - идентификатор пользователя, который отправляет запрос на удаление
      * @param idFriend - идентификатор пользователя, которого удаляют из друзей
+     * @return результат перехода {@link FriendshipTransition}
      */
-    void deleteFromFriends(Long idUser, Long idFriend);
+    FriendshipTransition deleteFromFriends(Long idUser, Long idFriend);
 
     /**
      * Метод получения списка друзей пользователя по идентификатору из хранилища
@@ -90,30 +141,18 @@ public interface UserStorage {
     Set<Long> getIdFriendsByUser(User user);
 
     /**
-     * Метод проверки наличия пользователя в списке друзей другого пользователя
-     *
-     * @param userId    - идентификатор пользователя, отправившего запрос в друзья
-     * @param friendId  - идентификатор пользователя, которому отправили запрос
-     * @param confirmed - результат отправки запроса
-     * @return true, если пользователь userId попадает в список друзей friendId по взаимному запросу
-     * false, если пользователь friendId не отправлял встречный запрос в друзья
-     */
-    boolean checkFriendship(Long userId, Long friendId, Boolean confirmed);
-
-    /**
-     * Метод отправки встречного запроса в друзья - пользователи попадают в список друзей друг друга
+     * Метод получения идентификаторов друзей нескольких пользователей из хранилища
      *
-     * @param idUser   - идентификатор пользователя, отправившего запрос в друзья
-     * @param idFriend - идентификатор пользователя, которому отправили запрос
+     * @param userIds идентификаторы пользователей
+     * @return идентификаторы друзей по идентификатору пользователя (пустое множество, если друзей нет)
      */
-    void acceptToFriends(Long idUser, Long idFriend);
+    Map<Long, Set<Long>> getIdFriendsByUsers(Collection<Long> userIds);
 
     /**
-     * Метод удаления пользователя из списка друзей - idUser удаляет друга,
-     * поэтому idFriend удаляется из списка друзей idUser, но idUser остается в списке друзей idFriend
+     * Метод получения идентификаторов друзей пользователя из хранилища в виде отсортированного массива
      *
-     * @param idUser   - идентификатор пользователя, который удаляет друга
-     * @param idFriend - идентификатор пользователя, которого удаляют из друзей
+     * @param idUser идентификатор пользователя
+     * @return отсортированный по возрастанию массив идентификаторов друзей без повторов
      */
-    void deleteFromConfirmFriends(Long idUser, Long idFriend);
+    long[] getFriendIds(Long idUser);
 }
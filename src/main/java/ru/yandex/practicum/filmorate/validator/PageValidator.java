@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.validator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+/**
+ * Класс валидатора для проверки параметров постраничного получения списков
+ *
+ * @author Светлана Ибраева
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class PageValidator {
+    /**
+     * Поле размер страницы, если он не указан в запросе
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    /**
+     * Поле максимальный размер страницы
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Метод проверки параметров страницы
+     *
+     * @param after идентификатор последнего объекта предыдущей страницы
+     * @param limit размер страницы
+     * @return размер страницы: по умолчанию, если он не указан, и не больше максимального
+     * @throws ValidationException если курсор отрицательный или размер страницы меньше или равен 0
+     */
+    public int validate(Long after, Integer limit) {
+        if (after != null && after < 0) {
+            log.error("Курсор страницы отрицательный");
+            throw new ValidationException("Идентификатор after не может быть отрицательным");
+        }
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit <= 0) {
+            log.error("Размер страницы меньше или равен 0");
+            throw new ValidationException("Размер страницы limit должен быть больше 0");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+}
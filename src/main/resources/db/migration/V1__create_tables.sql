@@ -54,4 +54,4 @@ CREATE TABLE IF NOT EXISTS friendship (
     CONSTRAINT pk_friendship PRIMARY KEY (user_id1, user_id2),
     CONSTRAINT fk_friendship_user_id1 FOREIGN KEY(user_id1) REFERENCES users (user_id) ON DELETE CASCADE,
     CONSTRAINT fk_friendship_user_id2 FOREIGN KEY(user_id2) REFERENCES users (user_id) ON DELETE CASCADE
-    );
\ No newline at end of file
+    );
@@ -0,0 +1,3 @@
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count bigint NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_films_likes_count ON films (likes_count DESC, film_id);
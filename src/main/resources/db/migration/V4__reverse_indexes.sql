@@ -0,0 +1,5 @@
+CREATE INDEX IF NOT EXISTS idx_friendship_user_id2 ON friendship (user_id2, confirmed, user_id1);
+
+CREATE INDEX IF NOT EXISTS idx_films_likes_user_id ON films_likes (user_id, film_id);
+
+CREATE INDEX IF NOT EXISTS idx_films_genres_genre_id ON films_genres (genre_id, film_id);
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.controller.MetricsController;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.metrics.ConnectionPoolMetrics;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверка метрик пула соединений, которые отдает /metrics/pool, на настоящем пуле Hikari
+ */
+public class ConnectionPoolMetricsTest {
+    private static final int POOL_SIZE = 2;
+
+    @Test
+    public void poolWithoutConnectionsIsReportedAsDisabled() {
+        MetricsController controller = new MetricsController(List.of(new ConnectionPoolMetrics()));
+
+        Map<String, Object> metrics = controller.findByName("pool");
+
+        assertThat(metrics.get("enabled")).isEqualTo(false);
+        assertThat(metrics).doesNotContainKey("active");
+        assertThat(latency(metrics, "acquireTime").get("count")).isEqualTo(0L);
+        assertThrows(NotFoundException.class, () -> controller.findByName("unknown"));
+    }
+
+    @Test
+    public void poolReportsActiveIdlePendingAndAcquireTime() throws Exception {
+        ConnectionPoolMetrics poolMetrics = new ConnectionPoolMetrics();
+        MetricsController controller = new MetricsController(List.of(poolMetrics));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (HikariDataSource dataSource = newPool(poolMetrics)) {
+            try (Connection first = dataSource.getConnection()) {
+                Map<String, Object> metrics = awaitMetrics(controller,
+                        m -> m.get("active").equals(1) && m.get("idle").equals(POOL_SIZE - 1));
+                assertThat(metrics.get("enabled")).isEqualTo(true);
+                assertThat(metrics.get("total")).isEqualTo(POOL_SIZE);
+                assertThat(metrics.get("max")).isEqualTo(POOL_SIZE);
+
+                try (Connection second = dataSource.getConnection()) {
+                    // Все соединения заняты, поэтому третий поток ждет соединения
+                    Future<?> waiting = executor.submit(() -> {
+                        try (Connection third = dataSource.getConnection()) {
+                            return third.isValid(1);
+                        }
+                    });
+                    metrics = awaitMetrics(controller, m -> m.get("pending").equals(1));
+                    assertThat(metrics.get("active")).isEqualTo(POOL_SIZE);
+                    assertThat(metrics.get("idle")).isEqualTo(0);
+
+                    second.close();
+                    waiting.get();
+                }
+            }
+            Map<String, Object> metrics = awaitMetrics(controller, m -> m.get("active").equals(0));
+            assertThat(metrics.get("pending")).isEqualTo(0);
+            assertThat(metrics.get("timeouts")).isEqualTo(0L);
+            assertThat(latency(metrics, "acquireTime").get("count")).isEqualTo(3L);
+            assertThat(latency(metrics, "acquireTime")).containsKey("p99Ms");
+            assertThat(latency(metrics, "usageTime").get("count")).isEqualTo(3L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private HikariDataSource newPool(ConnectionPoolMetrics poolMetrics) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:pool-metrics;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setMaximumPoolSize(POOL_SIZE);
+        config.setMinimumIdle(POOL_SIZE);
+        config.setMetricsTrackerFactory(poolMetrics);
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Метод ожидания метрик: статистика пула обновляется не чаще раза в секунду
+     */
+    private Map<String, Object> awaitMetrics(MetricsController controller, Predicate<Map<String, Object>> condition)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        Map<String, Object> metrics = controller.findByName("pool");
+        while (!condition.test(metrics) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            metrics = controller.findByName("pool");
+        }
+        assertThat(condition.test(metrics)).isTrue();
+        return metrics;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> latency(Map<String, Object> metrics, String name) {
+        return (Map<String, Object>) metrics.get(name);
+    }
+}
@@ -0,0 +1,182 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDictionaryStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.rating.MpaDictionaryStorage;
+import ru.yandex.practicum.filmorate.storage.rating.MpaStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверка справочников жанров и рейтингов поверх хранилища, которое считает обращения к себе
+ */
+public class DictionaryStorageTest {
+
+    @Test
+    public void mpaDictionaryIsLoadedOnceAndServesLookupsFromMemory() {
+        CountingMpaStorage storage = new CountingMpaStorage();
+        storage.ratings.add(newMpa(1L, "G"));
+        storage.ratings.add(newMpa(3L, "PG-13"));
+        MpaDictionaryStorage dictionary = new MpaDictionaryStorage(storage);
+        dictionary.afterPropertiesSet();
+
+        assertThat(dictionary.findMpaById(3L).getName()).isEqualTo("PG-13");
+        assertThat(dictionary.findAllMpa()).extracting("id").containsExactly(1L, 3L);
+        assertThat(dictionary.findMpaById(2L)).isNull();
+        assertThat(dictionary.findMpaById(100L)).isNull();
+        assertThat(dictionary.findMpaById(-1L)).isNull();
+        assertThat(dictionary.findMpaById(null)).isNull();
+
+        assertThat(storage.loads).isEqualTo(1);
+        Map<String, Object> metrics = dictionary.getMetrics();
+        assertThat(metrics.get("size")).isEqualTo(2L);
+        assertThat(metrics.get("loads")).isEqualTo(1L);
+        assertThat(metrics.get("hits")).isEqualTo(2L);
+        assertThat(metrics.get("misses")).isEqualTo(4L);
+    }
+
+    @Test
+    public void mpaDictionaryReturnsCopies() {
+        CountingMpaStorage storage = new CountingMpaStorage();
+        storage.ratings.add(newMpa(1L, "G"));
+        MpaDictionaryStorage dictionary = new MpaDictionaryStorage(storage);
+        dictionary.afterPropertiesSet();
+
+        dictionary.findMpaById(1L).setName("changed");
+        dictionary.findAllMpa().get(0).setName("changed");
+
+        assertThat(dictionary.findMpaById(1L).getName()).isEqualTo("G");
+    }
+
+    @Test
+    public void mpaDictionaryIsReloadedAfterInvalidation() {
+        CountingMpaStorage storage = new CountingMpaStorage();
+        storage.ratings.add(newMpa(1L, "G"));
+        MpaDictionaryStorage dictionary = new MpaDictionaryStorage(storage);
+        dictionary.afterPropertiesSet();
+
+        storage.ratings.add(newMpa(2L, "PG"));
+        assertThat(dictionary.findMpaById(2L)).isNull();
+        dictionary.invalidate();
+
+        assertThat(dictionary.findMpaById(2L).getName()).isEqualTo("PG");
+        assertThat(storage.loads).isEqualTo(2);
+        assertThat(dictionary.getMetrics().get("loads")).isEqualTo(2L);
+    }
+
+    @Test
+    public void genreDictionaryIsLoadedOnceAndServesLookupsFromMemory() {
+        CountingGenreStorage storage = new CountingGenreStorage();
+        storage.genres.add(new Genre(1L, "Комедия"));
+        storage.genres.add(new Genre(2L, "Драма"));
+        GenreDictionaryStorage dictionary = new GenreDictionaryStorage(storage);
+        dictionary.afterPropertiesSet();
+
+        assertThat(dictionary.findGenreById(2L).getName()).isEqualTo("Драма");
+        assertThat(dictionary.findAllGenres()).extracting("id").containsExactly(1L, 2L);
+        assertThat(dictionary.findGenreById(0L)).isNull();
+        assertThat(dictionary.findGenreById(7L)).isNull();
+
+        assertThat(storage.loads).isEqualTo(1);
+        Map<String, Object> metrics = dictionary.getMetrics();
+        assertThat(metrics.get("size")).isEqualTo(2L);
+        assertThat(metrics.get("hits")).isEqualTo(2L);
+        assertThat(metrics.get("misses")).isEqualTo(2L);
+    }
+
+    @Test
+    public void genreDictionaryReturnsCopiesAndIsReloadedAfterInvalidation() {
+        CountingGenreStorage storage = new CountingGenreStorage();
+        storage.genres.add(new Genre(1L, "Комедия"));
+        GenreDictionaryStorage dictionary = new GenreDictionaryStorage(storage);
+        dictionary.afterPropertiesSet();
+
+        dictionary.findGenreById(1L).setName("changed");
+        dictionary.findAllGenres().get(0).setName("changed");
+        assertThat(dictionary.findGenreById(1L).getName()).isEqualTo("Комедия");
+
+        storage.genres.set(0, new Genre(1L, "Мультфильм"));
+        dictionary.invalidate();
+
+        assertThat(dictionary.findGenreById(1L).getName()).isEqualTo("Мультфильм");
+        assertThat(storage.loads).isEqualTo(2);
+    }
+
+    private static Mpa newMpa(Long id, String name) {
+        Mpa mpa = new Mpa();
+        mpa.setId(id);
+        mpa.setName(name);
+        return mpa;
+    }
+
+    private static final class CountingMpaStorage implements MpaStorage {
+        private final List<Mpa> ratings = new ArrayList<>();
+        private int loads;
+
+        @Override
+        public List<Mpa> findAllMpa() {
+            loads++;
+            List<Mpa> result = new ArrayList<>();
+            ratings.forEach(mpa -> result.add(newMpa(mpa.getId(), mpa.getName())));
+            return result;
+        }
+
+        @Override
+        public Mpa findMpaById(Long id) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class CountingGenreStorage implements GenreStorage {
+        private final List<Genre> genres = new ArrayList<>();
+        private int loads;
+
+        @Override
+        public List<Genre> findAllGenres() {
+            loads++;
+            List<Genre> result = new ArrayList<>();
+            genres.forEach(genre -> result.add(new Genre(genre.getId(), genre.getName())));
+            return result;
+        }
+
+        @Override
+        public Genre findGenreById(Long id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<Genre> getGenresByFilm(Film film) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<Long, Set<Genre>> getGenresByFilms(Collection<Long> filmIds) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void updateGenresByFilm(Film film) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addGenresToFilm(Film film) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addGenresToFilms(Collection<Film> films) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
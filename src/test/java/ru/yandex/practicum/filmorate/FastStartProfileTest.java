@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@ActiveProfiles("fast-start")
+public class FastStartProfileTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void lazyContextServesRequestsAndRecordsStartup() throws Exception {
+        mockMvc.perform(get("/genres"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(6)));
+
+        mockMvc.perform(get("/metrics/genre-dictionary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.loads").value(1))
+                .andExpect(jsonPath("$.size").value(6));
+
+        mockMvc.perform(get("/metrics/startup"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lazyInitialization").value(true))
+                .andExpect(jsonPath("$.readyMs").value(greaterThan(0)))
+                .andExpect(jsonPath("$.firstRequestMs").value(greaterThan(0)));
+    }
+}
@@ -0,0 +1,198 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.FilmCache;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверка кэша фильмов. Идентификаторы 1, 17, 33 и 49 попадают в один сегмент из 16
+ */
+public class FilmCacheTest {
+    private static final int SEGMENTS = 16;
+
+    @AfterEach
+    public void afterEach() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void segmentEvictsLeastRecentlyReadFilmsByWeight() {
+        FilmCache cache = new FilmCache(60_000, 3 * SEGMENTS);
+        load(cache, newFilm(1L, 0));
+        load(cache, newFilm(17L, 0));
+        load(cache, newFilm(33L, 0));
+        assertThat(cache.get(1L)).isNotNull();
+
+        load(cache, newFilm(49L, 0));
+
+        assertThat(cache.get(17L)).isNull();
+        assertThat(cache.get(1L)).isNotNull();
+        assertThat(cache.get(33L)).isNotNull();
+        assertThat(cache.get(49L)).isNotNull();
+        assertThat(cache.getMetrics().get("evictions")).isEqualTo(1L);
+        assertThat(cache.getMetrics().get("weight")).isEqualTo(3L);
+    }
+
+    @Test
+    public void likesDoNotCountTowardsWeight() {
+        FilmCache cache = new FilmCache(60_000, 3 * SEGMENTS);
+        Film popular = newFilm(1L, 1);
+        popular.setLikes(LongStream.rangeClosed(1, 100_000).boxed().collect(Collectors.toSet()));
+        load(cache, popular);
+        load(cache, newFilm(17L, 5));
+
+        assertThat(cache.get(1L).getLikes()).hasSize(100_000);
+        assertThat(cache.get(17L)).isNull();
+        assertThat(cache.getMetrics().get("oversized")).isEqualTo(1L);
+    }
+
+    @Test
+    public void expiredFilmIsNotReturned() throws InterruptedException {
+        FilmCache cache = new FilmCache(1, 1_000);
+        load(cache, newFilm(1L, 1));
+
+        Thread.sleep(20);
+
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.getMetrics().get("size")).isEqualTo(0L);
+    }
+
+    @Test
+    public void filmLoadedBeforeChangeIsNotCached() {
+        FilmCache cache = new FilmCache(60_000, 1_000);
+        long stamp = cache.stamp(1L);
+        cache.invalidate(1L);
+        cache.put(newFilm(1L, 1), stamp);
+        assertThat(cache.contains(1L)).isFalse();
+    }
+
+    @Test
+    public void changeOfAnotherFilmInSegmentDoesNotRejectLoad() {
+        FilmCache cache = new FilmCache(60_000, 1_000);
+        load(cache, newFilm(17L, 1));
+        long stamp = cache.stamp(1L);
+        cache.invalidate(33L);
+        cache.invalidate(17L);
+        cache.put(newFilm(1L, 1), stamp);
+
+        assertThat(cache.contains(1L)).isTrue();
+    }
+
+    @Test
+    public void likeAndUnlikeNotifiedInReverseOrderLeaveNoStaleLike() {
+        FilmCache cache = new FilmCache(60_000, 1_000);
+        load(cache, newFilm(1L, 1));
+        // Хранилище зафиксировало лайк пользователя 5, затем его отмену, а кэш узнает о них в обратном порядке
+        Film liked = newFilm(1L, 1);
+        liked.getLikes().add(5L);
+        long stamp = cache.stamp(1L);
+
+        cache.invalidate(1L);
+        load(cache, newFilm(1L, 1));
+        cache.invalidate(1L);
+        // Читатель, загрузивший фильм между фиксациями, завершает загрузку последним
+        cache.put(liked, stamp);
+
+        assertThat(cache.contains(1L)).isFalse();
+        load(cache, newFilm(1L, 1));
+        assertThat(cache.get(1L).getLikes()).isEmpty();
+    }
+
+    @Test
+    public void returnedFilmsDoNotChangeCache() {
+        FilmCache cache = new FilmCache(60_000, 1_000);
+        load(cache, newFilm(1L, 1));
+
+        Film copy = cache.get(1L);
+        copy.getLikes().add(5L);
+        copy.getGenres().clear();
+
+        assertThat(cache.get(1L).getLikes()).isEmpty();
+        assertThat(cache.get(1L).getGenres()).hasSize(1);
+    }
+
+    @Test
+    public void containsDoesNotCountMisses() {
+        FilmCache cache = new FilmCache(60_000, 1_000);
+
+        assertThat(cache.contains(1L)).isFalse();
+
+        assertThat(cache.getMetrics().get("misses")).isEqualTo(0L);
+    }
+
+    @Test
+    public void filmReadInRolledBackTransactionIsInvalidated() {
+        FilmCache cache = new FilmCache(60_000, 1_000);
+        TransactionSynchronizationManager.initSynchronization();
+        load(cache, newFilm(1L, 1));
+        assertThat(cache.contains(1L)).isTrue();
+
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(cache.contains(1L)).isFalse();
+    }
+
+    @Test
+    public void filmReadInCommittedTransactionStaysCached() {
+        FilmCache cache = new FilmCache(60_000, 1_000);
+        TransactionSynchronizationManager.initSynchronization();
+        load(cache, newFilm(1L, 1));
+
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(cache.contains(1L)).isTrue();
+    }
+
+    @Test
+    public void likeInsideTransactionEvictsFilmAgainAfterCompletion() {
+        FilmCache cache = new FilmCache(60_000, 1_000);
+        load(cache, newFilm(1L, 1));
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.invalidate(1L);
+        assertThat(cache.contains(1L)).isFalse();
+        load(cache, newFilm(1L, 1));
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(cache.contains(1L)).isFalse();
+    }
+
+    private void load(FilmCache cache, Film film) {
+        cache.put(film, cache.stamp(film.getId()));
+    }
+
+    private void completeTransaction(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private Film newFilm(Long id, int genres) {
+        Mpa mpa = new Mpa();
+        mpa.setId(1L);
+        Film film = new Film("film" + id, "description", LocalDate.of(2000, 1, 1), 100, mpa);
+        film.setId(id);
+        Set<Genre> genreSet = new HashSet<>();
+        for (long i = 1; i <= genres; i++) {
+            genreSet.add(new Genre(i, "genre" + i));
+        }
+        film.setGenres(genreSet);
+        return film;
+    }
+}
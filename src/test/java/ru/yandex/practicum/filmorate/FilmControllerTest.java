@@ -844,6 +844,63 @@ public class FilmControllerTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(List.of(filmWithId))));
     }
 
+    @Test
+    public void createFilmsBulkFromNdjson() throws Exception {
+        Film filmWithoutName = new Film("", "description",
+                LocalDate.of(1994, 1, 18), 180, mpa);
+        String body = objectMapper.writeValueAsString(filmWithoutId) + "\n"
+                + objectMapper.writeValueAsString(filmWithoutName) + "\n"
+                + objectMapper.writeValueAsString(filmWithoutId) + "\n";
+        var requestBuilder = post("/films/bulk")
+                .content(body)
+                .contentType("application/x-ndjson")
+                .characterEncoding(StandardCharsets.UTF_8);
+
+        MvcResult mvcResult = mockMvc.perform(requestBuilder)
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn();
+
+        String[] results = mvcResult.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertThat(results.length).isEqualTo(3);
+        assertThat(results[0]).isEqualToIgnoringWhitespace(
+                "{\"row\":2,\"error\":\"Название фильма не может быть пустым\"}");
+        assertThat(results[1]).startsWith("{\"row\":1,\"id\":");
+        assertThat(results[2]).startsWith("{\"row\":3,\"id\":");
+
+        mockMvc.perform(get("/films").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    public void getFilmsByPagesAndAsStream() throws Exception {
+        createFilm();
+        createFilm();
+        createFilm();
+
+        mockMvc.perform(get("/films?limit=2").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].id").value(2));
+        mockMvc.perform(get("/films?after=2&limit=2").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(3));
+        mockMvc.perform(get("/films?limit=0").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        MvcResult mvcResult = mockMvc.perform(get("/films/stream"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn();
+        String[] films = mvcResult.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertThat(films.length).isEqualTo(3);
+        filmWithId.setId(3L);
+        assertThat(films[2]).isEqualToIgnoringWhitespace(objectMapper.writeValueAsString(filmWithId));
+    }
+
     private void getListFilmsMustBeEmpty() throws Exception {
         var checkListFilmsRequest = get("/films")
                 .contentType(MediaType.APPLICATION_JSON)
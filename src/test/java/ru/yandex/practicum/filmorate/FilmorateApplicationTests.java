@@ -8,7 +8,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.core.AutoConfigureCache;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
@@ -18,12 +20,18 @@ import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.rating.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipTransition;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
 @AutoConfigureTestDatabase
@@ -192,6 +200,26 @@ class FilmorateApplicationTests {
         userStorage.deleteFromFriends(secondUser.getId(), thirdUser.getId());
     }
 
+    @Test
+    public void testCommonFriendsFollowFriendshipChanges() {
+        firstUser = userStorage.createUser(firstUser);
+        secondUser = userStorage.createUser(secondUser);
+        thirdUser = userStorage.createUser(thirdUser);
+        userService.addToFriends(firstUser.getId(), thirdUser.getId());
+        assertThat(userService.getCommonFriends(firstUser.getId(), secondUser.getId())).isEmpty();
+
+        userService.addToFriends(secondUser.getId(), thirdUser.getId());
+        assertThat(userService.getCommonFriends(firstUser.getId(), secondUser.getId()))
+                .extracting(User::getId).containsExactly(thirdUser.getId());
+        assertThat(userStorage.getCommonFriends(firstUser.getId(), secondUser.getId()))
+                .extracting(User::getId).containsExactly(thirdUser.getId());
+
+        userService.deleteFromFriends(firstUser.getId(), thirdUser.getId());
+        assertThat(userService.getCommonFriends(firstUser.getId(), secondUser.getId())).isEmpty();
+        assertThat(userStorage.getUsersByIds(List.of(thirdUser.getId(), firstUser.getId(), 100L)))
+                .extracting(User::getId).containsExactly(firstUser.getId(), thirdUser.getId());
+    }
+
     @Test
     public void testGetIdFriendsByUser() {
         firstUser = userStorage.createUser(firstUser);
@@ -206,6 +234,45 @@ class FilmorateApplicationTests {
         userStorage.deleteFromFriends(firstUser.getId(), thirdUser.getId());
     }
 
+    @Test
+    public void testGetIdFriendsByUsers() {
+        firstUser = userStorage.createUser(firstUser);
+        secondUser = userStorage.createUser(secondUser);
+        thirdUser = userStorage.createUser(thirdUser);
+        userService.addToFriends(firstUser.getId(), secondUser.getId());
+        userService.addToFriends(secondUser.getId(), firstUser.getId());
+        userService.addToFriends(firstUser.getId(), thirdUser.getId());
+
+        Map<Long, Set<Long>> friends = userStorage.getIdFriendsByUsers(
+                List.of(firstUser.getId(), secondUser.getId(), thirdUser.getId()));
+        assertThat(friends.get(firstUser.getId())).containsExactlyInAnyOrder(secondUser.getId(), thirdUser.getId());
+        assertThat(friends.get(secondUser.getId())).containsExactly(firstUser.getId());
+        assertThat(friends.get(thirdUser.getId())).isEmpty();
+        assertThat(userService.findAllUsers())
+                .filteredOn(user -> user.getId().equals(firstUser.getId()))
+                .allSatisfy(user -> assertThat(user.getFriends()).hasSize(2));
+    }
+
+    @Test
+    public void testFriendshipTransitions() {
+        firstUser = userStorage.createUser(firstUser);
+        secondUser = userStorage.createUser(secondUser);
+        Long first = firstUser.getId();
+        Long second = secondUser.getId();
+        assertThat(userStorage.addToFriends(first, second)).isEqualTo(FriendshipTransition.REQUESTED);
+        assertThat(userStorage.addToFriends(first, second)).isEqualTo(FriendshipTransition.ALREADY_REQUESTED);
+        assertThat(userStorage.addToFriends(second, first)).isEqualTo(FriendshipTransition.CONFIRMED);
+        assertThat(userStorage.addToFriends(first, second)).isEqualTo(FriendshipTransition.ALREADY_FRIENDS);
+        assertThat(userStorage.addToFriends(second, first)).isEqualTo(FriendshipTransition.ALREADY_FRIENDS);
+        assertThat(userStorage.deleteFromFriends(second, first)).isEqualTo(FriendshipTransition.UNCONFIRMED);
+        assertThat(userStorage.deleteFromFriends(second, first)).isEqualTo(FriendshipTransition.NOT_FRIENDS);
+        assertThat(userStorage.deleteFromFriends(first, second)).isEqualTo(FriendshipTransition.DELETED);
+        assertThat(userStorage.addToFriends(first, second + 100)).isEqualTo(FriendshipTransition.FRIEND_NOT_FOUND);
+        assertThat(userStorage.deleteFromFriends(first + 100, second))
+                .isEqualTo(FriendshipTransition.USER_NOT_FOUND);
+        assertThrows(NotFoundException.class, () -> userService.addToFriends(first, second + 100));
+    }
+
     @Test
     public void testDeleteFromConfirmFriends() {
         firstUser = userStorage.createUser(firstUser);
@@ -341,6 +408,91 @@ class FilmorateApplicationTests {
                                 .hasFieldOrPropertyWithValue("name", "first film"));
     }
 
+    @Test
+    public void testAddAndDeleteLikeReportWhetherChanged() {
+        firstUser = userStorage.createUser(firstUser);
+        firstFilm = filmStorage.createFilm(firstFilm);
+        assertThat(filmStorage.addLikeToFilm(firstFilm.getId(), firstUser.getId())).isTrue();
+        assertThat(filmStorage.addLikeToFilm(firstFilm.getId(), firstUser.getId())).isFalse();
+        assertThat(filmStorage.addLikeToFilm(firstFilm.getId(), firstUser.getId() + 100)).isFalse();
+        assertThat(filmStorage.deleteLikeFromFilm(firstFilm.getId(), firstUser.getId())).isTrue();
+        assertThat(filmStorage.deleteLikeFromFilm(firstFilm.getId(), firstUser.getId())).isFalse();
+        assertThrows(NotFoundException.class,
+                () -> filmService.addLikeToFilm(firstFilm.getId() + 100, firstUser.getId()));
+    }
+
+    @Test
+    public void testLikesCountIsConsistentWithLikes() {
+        firstUser = userStorage.createUser(firstUser);
+        secondUser = userStorage.createUser(secondUser);
+        firstFilm = filmStorage.createFilm(firstFilm);
+        filmService.addLikeToFilm(firstFilm.getId(), firstUser.getId());
+        filmService.addLikeToFilm(firstFilm.getId(), secondUser.getId());
+        filmService.deleteLikeFromFilm(firstFilm.getId(), firstUser.getId());
+        assertThat(filmStorage.reconcileLikesCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDeleteAllUsersResetsLikesCount() {
+        firstUser = userStorage.createUser(firstUser);
+        firstFilm = filmStorage.createFilm(firstFilm);
+        filmService.addLikeToFilm(firstFilm.getId(), firstUser.getId());
+        userService.deleteAllUsers();
+        assertThat(filmStorage.getLikesCountByFilms().get(firstFilm.getId())).isEqualTo(0L);
+        assertThat(filmStorage.reconcileLikesCount()).isEqualTo(0);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testConcurrentEqualLikesAreAddedOnce() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            firstUser = userService.createUser(firstUser);
+            firstFilm = filmService.createFilm(firstFilm);
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            List<Future<?>> likes = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                likes.add(executor.submit(() -> {
+                    barrier.await();
+                    filmService.addLikeToFilm(firstFilm.getId(), firstUser.getId());
+                    return null;
+                }));
+            }
+            for (Future<?> like : likes) {
+                like.get();
+            }
+            assertThat(filmService.getFilmById(firstFilm.getId()).getLikes()).containsExactly(firstUser.getId());
+            assertThat(filmStorage.reconcileLikesCount()).isEqualTo(0);
+        } finally {
+            executor.shutdownNow();
+            filmService.deleteAllFilms();
+            userService.deleteAllUsers();
+        }
+    }
+
+    @Test
+    public void testGetGenresAndLikesByFilms() {
+        firstUser = userStorage.createUser(firstUser);
+        secondUser = userStorage.createUser(secondUser);
+
+        firstFilm = filmService.createFilm(firstFilm);
+        secondFilm = filmService.createFilm(secondFilm);
+        filmService.addLikeToFilm(firstFilm.getId(), firstUser.getId());
+        filmService.addLikeToFilm(firstFilm.getId(), secondUser.getId());
+
+        List<Long> ids = List.of(firstFilm.getId(), secondFilm.getId());
+        Map<Long, Set<Genre>> genres = genreStorage.getGenresByFilms(ids);
+        Map<Long, Set<Long>> likes = filmStorage.getLikesByFilms(ids);
+
+        assertThat(genres.get(firstFilm.getId()))
+                .containsExactlyInAnyOrder(new Genre(1L, "Комедия"), new Genre(2L, "Драма"));
+        assertThat(genres.get(secondFilm.getId())).containsExactly(new Genre(6L, "Боевик"));
+        assertThat(likes.get(firstFilm.getId()))
+                .containsExactlyInAnyOrder(firstUser.getId(), secondUser.getId());
+        assertThat(likes.get(secondFilm.getId())).isEmpty();
+    }
+
     @Test
     public void testUpdateGenresByFilm() {
         firstFilm = filmService.createFilm(firstFilm);
@@ -363,6 +515,23 @@ class FilmorateApplicationTests {
         assertThat(listGenres).contains(new Genre(3L, "Мультфильм"));
     }
 
+    @Test
+    public void testUpdateGenresByFilmAppliesOnlyChanges() {
+        firstFilm = filmStorage.createFilm(firstFilm);
+        genreStorage.addGenresToFilm(firstFilm);
+
+        firstFilm.setGenres(new HashSet<>(Arrays.asList(new Genre(2L, "Драма"),
+                new Genre(3L, null),
+                new Genre(3L, "Мультфильм"))));
+        genreStorage.updateGenresByFilm(firstFilm);
+        assertThat(genreStorage.getGenresByFilm(firstFilm))
+                .containsExactlyInAnyOrder(new Genre(2L, "Драма"), new Genre(3L, "Мультфильм"));
+
+        firstFilm.setGenres(new HashSet<>());
+        genreStorage.updateGenresByFilm(firstFilm);
+        assertThat(genreStorage.getGenresByFilm(firstFilm)).isEmpty();
+    }
+
     @Test
     public void testFindAllGenres() {
         List<Genre> listGenres = genreStorage.findAllGenres();
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.service.FriendIdsCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверка кэша идентификаторов друзей. Идентификаторы 1 и 17 попадают в один сегмент из 16
+ */
+public class FriendIdsCacheTest {
+    private static final int SEGMENTS = 16;
+
+    @Test
+    public void friendIdsAreCachedUntilInvalidated() {
+        FriendIdsCache cache = new FriendIdsCache(60_000, 100 * SEGMENTS);
+        cache.put(1L, new long[]{2, 3}, cache.stamp(1L));
+
+        assertThat(cache.get(1L)).containsExactly(2L, 3L);
+        cache.invalidate(1L);
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.getMetrics().get("hits")).isEqualTo(1L);
+        assertThat(cache.getMetrics().get("misses")).isEqualTo(1L);
+    }
+
+    @Test
+    public void loadIsRejectedOnlyByChangeOfSameUser() {
+        FriendIdsCache cache = new FriendIdsCache(60_000, 100 * SEGMENTS);
+        long first = cache.stamp(1L);
+        long second = cache.stamp(17L);
+        cache.invalidate(1L);
+        cache.put(1L, new long[]{2}, first);
+        cache.put(17L, new long[]{2}, second);
+
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.get(17L)).containsExactly(2L);
+    }
+
+    @Test
+    public void userWithTooManyFriendsIsReportedAsOversized() {
+        FriendIdsCache cache = new FriendIdsCache(60_000, 100 * SEGMENTS);
+        cache.put(1L, new long[100], cache.stamp(1L));
+
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.getMetrics().get("oversized")).isEqualTo(1L);
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.metrics.HttpRequestMetrics;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class HttpRequestMetricsTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void requestsAreGroupedByRouteTemplate() throws Exception {
+        mockMvc.perform(get("/genres/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/genres/2")).andExpect(status().isOk());
+        mockMvc.perform(get("/films/-1")).andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/metrics/http"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['GET /genres/{id}'].requests").value(greaterThanOrEqualTo(2)))
+                .andExpect(jsonPath("$['GET /genres/{id}'].latency.p99Ms").exists())
+                .andExpect(jsonPath("$['GET /films/{id}'].clientErrors").value(greaterThan(0)))
+                .andExpect(jsonPath("$['GET /genres/1']").doesNotExist());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void recordCountsRequestsAndErrors() {
+        HttpRequestMetrics metrics = new HttpRequestMetrics();
+        metrics.record("PUT", "/films/{id}/like/{userId}", 200, 1_000_000);
+        metrics.record("PUT", "/films/{id}/like/{userId}", 404, 2_000_000);
+        metrics.record("PUT", "/films/{id}/like/{userId}", 500, 3_000_000);
+        metrics.record("GET", HttpRequestMetrics.UNMATCHED_ROUTE, 404, 1_000);
+
+        Map<String, Object> route = (Map<String, Object>) metrics.getMetrics().get("PUT /films/{id}/like/{userId}");
+        assertThat(route.get("requests")).isEqualTo(3L);
+        assertThat(route.get("clientErrors")).isEqualTo(1L);
+        assertThat(route.get("serverErrors")).isEqualTo(1L);
+        assertThat((double) route.get("serverErrorRate")).isEqualTo(1.0 / 3);
+        Map<String, Object> latency = (Map<String, Object>) route.get("latency");
+        assertThat((double) latency.get("maxMs")).isEqualTo(3.0);
+        assertThat(metrics.getMetrics()).containsOnlyKeys("PUT /films/{id}/like/{userId}", "GET unmatched");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void unknownMethodsShareOneSeries() {
+        HttpRequestMetrics metrics = new HttpRequestMetrics();
+        for (int i = 0; i < 100; i++) {
+            metrics.record("FOO" + i, HttpRequestMetrics.UNMATCHED_ROUTE, 405, 1_000);
+        }
+        metrics.record("GET", HttpRequestMetrics.UNMATCHED_ROUTE, 404, 1_000);
+
+        assertThat(metrics.getMetrics()).containsOnlyKeys("OTHER unmatched", "GET unmatched");
+        Map<String, Object> other = (Map<String, Object>) metrics.getMetrics().get("OTHER unmatched");
+        assertThat(other.get("requests")).isEqualTo(100L);
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryFilmStorageTest {
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage(userStorage);
+
+    @Test
+    public void popularFilmsFollowLikes() {
+        createUsers(2);
+        Film first = storage.createFilm(newFilm());
+        Film second = storage.createFilm(newFilm());
+        Film third = storage.createFilm(newFilm());
+
+        assertThat(storage.addLikeToFilm(second.getId(), 1L)).isTrue();
+        assertThat(storage.addLikeToFilm(second.getId(), 1L)).isFalse();
+        assertThat(storage.addLikeToFilm(third.getId(), 1L)).isTrue();
+        assertThat(storage.addLikeToFilm(third.getId(), 2L)).isTrue();
+        assertThat(storage.addLikeToFilm(100L, 1L)).isFalse();
+        assertThat(storage.addLikeToFilm(first.getId(), 100L)).isFalse();
+
+        assertThat(ids(storage.getPopularFilm(10))).containsExactly(third.getId(), second.getId(), first.getId());
+        assertThat(storage.deleteLikeFromFilm(third.getId(), 1L)).isTrue();
+        assertThat(storage.deleteLikeFromFilm(third.getId(), 1L)).isFalse();
+        assertThat(ids(storage.getPopularFilm(2))).containsExactly(second.getId(), third.getId());
+        assertThat(storage.getFilmById(third.getId()).getLikes()).containsExactly(2L);
+    }
+
+    @Test
+    public void returnedFilmsDoNotChangeStorage() {
+        createUsers(1);
+        Film film = storage.createFilm(newFilm());
+        storage.addLikeToFilm(film.getId(), 1L);
+
+        Film copy = storage.getFilmById(film.getId());
+        copy.getLikes().add(2L);
+        copy.getMpa().setId(5L);
+
+        assertThat(storage.getLikesByFilm(film)).containsExactly(1L);
+        assertThat(storage.getFilmById(film.getId()).getMpa().getId()).isEqualTo(1L);
+    }
+
+    @Test
+    public void concurrentCreatesAndLikesKeepStateConsistent() throws InterruptedException {
+        createUsers(8);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            long userId = thread + 1;
+            executor.submit(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    Film film = storage.createFilm(newFilm());
+                    storage.addLikeToFilm(film.getId(), userId);
+                    storage.addLikeToFilm((long) (i % 10) + 1, userId);
+                    storage.getPopularFilm(5);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        List<Film> films = storage.findAllFilms();
+        assertThat(films).hasSize(8_000);
+        assertThat(films.get(films.size() - 1).getId()).isEqualTo(8_000L);
+        assertThat(storage.getLikesByFilm(films.get(0))).hasSize(8);
+        assertThat(storage.findFilms(7_995L, 10)).hasSize(5);
+        for (Film film : storage.getPopularFilm(10)) {
+            assertThat(film.getLikes()).hasSize(8);
+        }
+    }
+
+    private void createUsers(int count) {
+        for (int i = 0; i < count; i++) {
+            userStorage.createUser(new User("user" + i + "@mail.ru", "user" + i, "user" + i,
+                    LocalDate.of(2000, 1, 1)));
+        }
+    }
+
+    private Film newFilm() {
+        Mpa mpa = new Mpa();
+        mpa.setId(1L);
+        mpa.setName("G");
+        return new Film("film", "description", LocalDate.of(2000, 1, 1), 100, mpa);
+    }
+
+    private List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(java.util.stream.Collectors.toList());
+    }
+}
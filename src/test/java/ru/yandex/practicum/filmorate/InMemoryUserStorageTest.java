@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipTransition;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryUserStorageTest {
+    private final InMemoryUserStorage storage = new InMemoryUserStorage();
+
+    @Test
+    public void friendshipTransitions() {
+        User user = storage.createUser(newUser());
+        User friend = storage.createUser(newUser());
+
+        assertThat(storage.addToFriends(user.getId(), 100L)).isEqualTo(FriendshipTransition.FRIEND_NOT_FOUND);
+        assertThat(storage.addToFriends(user.getId(), friend.getId())).isEqualTo(FriendshipTransition.REQUESTED);
+        assertThat(storage.addToFriends(user.getId(), friend.getId()))
+                .isEqualTo(FriendshipTransition.ALREADY_REQUESTED);
+        assertThat(storage.getIdFriendsByUser(friend)).isEmpty();
+
+        assertThat(storage.addToFriends(friend.getId(), user.getId())).isEqualTo(FriendshipTransition.CONFIRMED);
+        assertThat(storage.addToFriends(user.getId(), friend.getId())).isEqualTo(FriendshipTransition.ALREADY_FRIENDS);
+
+        assertThat(storage.deleteFromFriends(user.getId(), friend.getId()))
+                .isEqualTo(FriendshipTransition.UNCONFIRMED);
+        assertThat(storage.getIdFriendsByUser(friend)).containsExactly(user.getId());
+        assertThat(storage.deleteFromFriends(friend.getId(), user.getId())).isEqualTo(FriendshipTransition.DELETED);
+        assertThat(storage.deleteFromFriends(friend.getId(), user.getId()))
+                .isEqualTo(FriendshipTransition.NOT_FRIENDS);
+    }
+
+    @Test
+    public void commonFriendsAreIntersectionOfFriendLists() {
+        User user = storage.createUser(newUser());
+        User other = storage.createUser(newUser());
+        User common = storage.createUser(newUser());
+        User single = storage.createUser(newUser());
+        storage.addToFriends(user.getId(), common.getId());
+        storage.addToFriends(user.getId(), single.getId());
+        storage.addToFriends(other.getId(), common.getId());
+
+        assertThat(ids(storage.getCommonFriends(user.getId(), other.getId()))).containsExactly(common.getId());
+        assertThat(ids(storage.getFriendsByUser(user.getId()))).containsExactly(common.getId(), single.getId());
+
+        User copy = storage.getUserById(user.getId());
+        copy.getFriends().add(other.getId());
+        assertThat(storage.getIdFriendsByUser(user)).containsExactlyInAnyOrder(common.getId(), single.getId());
+    }
+
+    @Test
+    public void concurrentTransitionsKeepFriendListsConsistent() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            storage.createUser(newUser());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.submit(() -> {
+                for (long user = 1; user <= 100; user++) {
+                    for (long friend = 1; friend <= 100; friend++) {
+                        if (user != friend) {
+                            storage.addToFriends(user, friend);
+                            storage.addToFriends(friend, user);
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        for (User user : storage.findAllUsers()) {
+            assertThat(user.getFriends()).hasSize(99);
+        }
+        assertThat(storage.getCommonFriends(1L, 2L)).hasSize(98);
+    }
+
+    private User newUser() {
+        return new User("user@mail.ru", "login", "name", LocalDate.of(2000, 1, 1));
+    }
+
+    private List<Long> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+}
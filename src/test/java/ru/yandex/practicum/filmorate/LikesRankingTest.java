@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.LikesRanking;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LikesRankingTest {
+
+    @Test
+    public void topIsOrderedByLikesThenById() {
+        LikesRanking ranking = new LikesRanking();
+        ranking.put(1L, 0);
+        ranking.put(2L, 5);
+        ranking.put(3L, 2);
+        ranking.put(4L, 2);
+        ranking.add(1L, 1);
+
+        assertThat(ranking.top(10)).containsExactly(2L, 3L, 4L, 1L);
+        assertThat(ranking.top(2)).containsExactly(2L, 3L);
+
+        ranking.add(4L, 4);
+        ranking.remove(2L);
+        assertThat(ranking.top(10)).containsExactly(4L, 3L, 1L);
+
+        ranking.resetLikes();
+        assertThat(ranking.top(10)).containsExactly(1L, 3L, 4L);
+    }
+
+    @Test
+    public void undoRestoresCountBelowZero() {
+        LikesRanking ranking = new LikesRanking();
+        ranking.put(1L, 0);
+        ranking.put(2L, 1);
+        ranking.put(3L, 1);
+
+        ranking.add(1L, -1);
+        assertThat(ranking.top(10)).containsExactly(2L, 3L, 1L);
+        ranking.add(1L, 1);
+
+        assertThat(ranking.top(10)).containsExactly(2L, 3L, 1L);
+    }
+
+    @Test
+    public void concurrentLikesKeepRankingConsistent() throws InterruptedException {
+        LikesRanking ranking = new LikesRanking();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    long filmId = i % 10;
+                    ranking.add(filmId, filmId);
+                    ranking.add(filmId, -1);
+                    ranking.top(5);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        List<Long> top = ranking.top(10);
+        assertThat(ranking.size()).isEqualTo(10);
+        // Фильм 0 только терял лайки, счетчик не ограничивается нулем
+        assertThat(top).containsExactly(9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L, 0L);
+    }
+}
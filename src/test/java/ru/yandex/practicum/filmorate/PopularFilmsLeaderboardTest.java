@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.PopularFilmsLeaderboard;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PopularFilmsLeaderboardTest {
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage(userStorage);
+    private final PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard(storage);
+    private Film unliked;
+    private Film liked;
+
+    @BeforeEach
+    public void setUp() {
+        User user = userStorage.createUser(new User("user@mail.ru", "user", "user",
+                LocalDate.of(2000, 1, 1)));
+        unliked = storage.createFilm(newFilm());
+        liked = storage.createFilm(newFilm());
+        storage.addLikeToFilm(liked.getId(), user.getId());
+        leaderboard.afterSingletonsInstantiated();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void resetLikesIsUndoneWhenTransactionRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        leaderboard.resetLikes();
+        assertThat(leaderboard.getTop(2)).containsExactly(unliked.getId(), liked.getId());
+
+        // Лайки в хранилище не удалены, как после отката удаления всех пользователей
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(leaderboard.getTop(2)).containsExactly(liked.getId(), unliked.getId());
+    }
+
+    @Test
+    public void resetLikesIsKeptWhenTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        leaderboard.resetLikes();
+        storage.deleteAllLikes();
+
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(leaderboard.getTop(2)).containsExactly(unliked.getId(), liked.getId());
+    }
+
+    private void completeTransaction(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private Film newFilm() {
+        Mpa mpa = new Mpa();
+        mpa.setId(1L);
+        mpa.setName("G");
+        return new Film("film", "description", LocalDate.of(2000, 1, 1), 100, mpa);
+    }
+}
@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверка планов всех SQL-запросов хранилищ: каждый запрос из классов *DbStorage
+ * выполняется через EXPLAIN, и тест падает, если запрос читает таблицу целиком
+ * без того, чтобы это было его назначением
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+public class QueryPlanTest {
+    /**
+     * Справочники из нескольких строк, их полный просмотр дешевле обращения к индексу
+     */
+    private static final Set<String> DICTIONARY_TABLES = Set.of("RATINGS", "GENRES");
+    /**
+     * Запросы, которые по назначению читают всю таблицу, и таблица, которую им разрешено просматривать
+     */
+    private static final Map<Pattern, String> WHOLE_TABLE_READS = Map.of(
+            Pattern.compile(".* FROM films AS f LEFT JOIN ratings AS r ON f.rating_id = r.rating_id ORDER BY f.film_id"),
+            "FILMS",
+            Pattern.compile("SELECT film_id, likes_count FROM films"), "FILMS",
+            Pattern.compile("UPDATE films f SET likes_count = .*"), "FILMS",
+            Pattern.compile("UPDATE films SET likes_count = 0 WHERE likes_count <> 0"), "FILMS",
+            Pattern.compile("DELETE FROM films"), "FILMS",
+            Pattern.compile("DELETE FROM films_likes"), "FILMS_LIKES",
+            Pattern.compile("SELECT \\* FROM users ORDER BY user_id"), "USERS",
+            Pattern.compile("SELECT u\\.\\*, .* FROM users AS u ORDER BY u.user_id"), "USERS",
+            Pattern.compile("DELETE FROM users"), "USERS");
+    /**
+     * Запросы первых строк в порядке индекса и индекс, по которому их разрешено читать без условия:
+     * H2 читает индекс по порядку и останавливается после LIMIT строк
+     */
+    private static final Map<Pattern, String> INDEX_ORDERED_READS = Map.of(
+            Pattern.compile(".* ORDER BY f.likes_count DESC, f.film_id LIMIT \\?"), "IDX_FILMS_LIKES_COUNT");
+    private static final Pattern STRING_CONCATENATION =
+            Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"(?:\\s*\\+\\s*\"((?:[^\"\\\\]|\\\\.)*)\")*");
+    private static final Pattern STRING_LITERAL = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern SQL_STATEMENT =
+            Pattern.compile("(?is)^\\(?\\s*(SELECT|UPDATE|DELETE|INSERT|MERGE|WITH)\\b.*");
+    /**
+     * Комментарий плана H2 о доступе к таблице: полный просмотр (tableScan)
+     * или индекс, после имени которого через двоеточие идет условие поиска
+     */
+    private static final Pattern PLAN_ACCESS = Pattern.compile("/\\* PUBLIC\\.([A-Z0-9_]+)(\\.tableScan)?( \\*/|:)");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void storageQueriesDoNotScanWholeTables() throws IOException {
+        Map<String, String> indexTables = new HashMap<>();
+        jdbcTemplate.query("SELECT index_name, table_name FROM information_schema.indexes " +
+                        "WHERE index_schema = 'PUBLIC'",
+                (RowCallbackHandler) rs -> indexTables.put(rs.getString("index_name"), rs.getString("table_name")));
+        List<String> statements = findStorageStatements();
+        assertThat(statements).isNotEmpty();
+
+        List<String> fullScans = new ArrayList<>();
+        for (String sql : statements) {
+            String plan = explain(sql);
+            Matcher access = PLAN_ACCESS.matcher(plan);
+            while (access.find()) {
+                boolean tableScan = access.group(2) != null;
+                boolean unconditionalIndexScan = !tableScan && access.group(3).equals(" */");
+                if (!tableScan && !unconditionalIndexScan || unconditionalIndexScan
+                        && isIndexOrderedRead(sql, access.group(1))) {
+                    continue;
+                }
+                String table = tableScan ? access.group(1) : indexTables.get(access.group(1));
+                if (table != null && !DICTIONARY_TABLES.contains(table) && !isWholeTableRead(sql, table)) {
+                    fullScans.add(table + ": " + sql + System.lineSeparator() + "    " + plan);
+                }
+            }
+        }
+        assertThat(fullScans).isEmpty();
+    }
+
+    @Test
+    public void popularFilmsAreReadByLikesCountIndex() throws IOException {
+        List<String> popular = findStorageStatements().stream()
+                .filter(sql -> sql.endsWith("ORDER BY f.likes_count DESC, f.film_id LIMIT ?"))
+                .collect(Collectors.toList());
+        assertThat(popular).hasSize(1);
+
+        String plan = explain(popular.get(0));
+
+        assertThat(plan).contains("PUBLIC.IDX_FILMS_LIKES_COUNT");
+        assertThat(plan).contains("index sorted");
+        assertThat(plan).doesNotContain("FILMS.tableScan");
+    }
+
+    private String explain(String sql) {
+        String statement = "EXPLAIN " + sql.replaceAll(":[a-zA-Z]+", "?");
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement explain = connection.prepareStatement(statement)) {
+                int parameters = explain.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    explain.setLong(i, 1);
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = explain.executeQuery()) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1).replaceAll("\\s+", " "));
+                    }
+                }
+                return plan.toString();
+            }
+        });
+    }
+
+    private boolean isWholeTableRead(String sql, String table) {
+        return WHOLE_TABLE_READS.entrySet().stream()
+                .anyMatch(entry -> entry.getValue().equals(table) && entry.getKey().matcher(sql).matches());
+    }
+
+    private boolean isIndexOrderedRead(String sql, String index) {
+        return INDEX_ORDERED_READS.entrySet().stream()
+                .anyMatch(entry -> entry.getValue().equals(index) && entry.getKey().matcher(sql).matches());
+    }
+
+    /**
+     * Метод поиска SQL-запросов в исходном коде хранилищ: склеиваются цепочки строковых литералов,
+     * соединенных через +, и остаются те, что начинаются с оператора SQL
+     */
+    private List<String> findStorageStatements() throws IOException {
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(Path.of("src", "main", "java"))) {
+            sources = files.filter(file -> file.getFileName().toString().endsWith("DbStorage.java"))
+                    .collect(Collectors.toList());
+        }
+        List<String> statements = new ArrayList<>();
+        for (Path source : sources) {
+            Matcher concatenation = STRING_CONCATENATION.matcher(Files.readString(source));
+            while (concatenation.find()) {
+                StringBuilder sql = new StringBuilder();
+                Matcher literal = STRING_LITERAL.matcher(concatenation.group());
+                while (literal.find()) {
+                    sql.append(literal.group(1));
+                }
+                String statement = sql.toString().replaceAll("\\s+", " ").trim();
+                if (SQL_STATEMENT.matcher(statement).matches()) {
+                    statements.add(statement);
+                }
+            }
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.storage.migration.SchemaMigrator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SchemaMigratorTest {
+    private final DriverManagerDataSource dataSource =
+            new DriverManagerDataSource("jdbc:h2:mem:migrations-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+    private final SchemaMigrator migrator = new SchemaMigrator(dataSource, SchemaMigrator.MIGRATIONS_LOCATION, true);
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    @Test
+    public void migrationsAreAppliedOnce() {
+        int applied = migrator.migrate();
+
+        assertThat(applied).isGreaterThan(0);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM schema_history", Integer.class))
+                .isEqualTo(applied);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ratings", Integer.class)).isEqualTo(5);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres", Integer.class)).isEqualTo(6);
+        assertThat(migrator.migrate()).isEqualTo(0);
+    }
+
+    @Test
+    public void changedMigrationStopsStartup() {
+        migrator.migrate();
+        jdbcTemplate.update("UPDATE schema_history SET checksum = checksum + 1 WHERE version = 1");
+
+        assertThrows(IllegalStateException.class, migrator::migrate);
+    }
+
+    @Test
+    public void missingMigrationScriptStopsStartup() {
+        migrator.migrate();
+        jdbcTemplate.update("INSERT INTO schema_history (version, description, checksum, installed_on, execution_ms) " +
+                "VALUES (1000, 'removed', 0, CURRENT_TIMESTAMP, 0)");
+
+        assertThrows(IllegalStateException.class, migrator::migrate);
+    }
+}
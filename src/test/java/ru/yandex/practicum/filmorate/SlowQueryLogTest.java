@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.metrics.SlowQueryLog;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проверка журнала медленных SQL-запросов: с нулевым порогом в журнал попадает каждый запрос
+ */
+@SpringBootTest(properties = {"filmorate.sql.slow-query.threshold-ms=0",
+        "filmorate.sql.slow-query.capacity=" + SlowQueryLogTest.CAPACITY})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class SlowQueryLogTest {
+    static final int CAPACITY = 10;
+    private static final long PLAN_TIMEOUT_MS = 5000;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private SlowQueryLog slowQueryLog;
+
+    @Test
+    public void selectIsLoggedWithParametersRowsAndAnalyzedPlan() throws Exception {
+        jdbcTemplate.queryForList("SELECT rating_id FROM ratings WHERE rating_id <= ?", Long.class, 3L);
+
+        Map<String, Object> query = awaitPlan(entry -> "SELECT rating_id FROM ratings WHERE rating_id <= ?"
+                .equals(entry.get("sql")));
+        assertThat(query.get("parameters")).isEqualTo(List.of("3"));
+        assertThat(query.get("rows")).isEqualTo(3L);
+        assertThat(query.get("request")).isNull();
+        assertThat((String) query.get("plan")).contains("scanCount");
+    }
+
+    @Test
+    public void updateIsLoggedWithChangedRowsAndNotRepeatedByPlan() throws Exception {
+        long ratings = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ratings", Long.class);
+        jdbcTemplate.update("UPDATE ratings SET name = name WHERE rating_id > ?", 0L);
+
+        Map<String, Object> query = awaitPlan(entry -> "UPDATE ratings SET name = name WHERE rating_id > ?"
+                .equals(entry.get("sql")));
+        assertThat(query.get("rows")).isEqualTo(ratings);
+        assertThat((String) query.get("plan")).doesNotContain("scanCount");
+    }
+
+    @Test
+    public void newestQueriesOfHttpRequestAreServedOverHttp() throws Exception {
+        mockMvc.perform(get("/films"))
+                .andExpect(status().isOk());
+
+        awaitPlan(entry -> "GET /films".equals(entry.get("request")));
+        mockMvc.perform(get("/metrics/slow-queries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.thresholdMs").value(0))
+                .andExpect(jsonPath("$.captured").value(greaterThan(CAPACITY)))
+                .andExpect(jsonPath("$.queries", hasSize(CAPACITY)))
+                .andExpect(jsonPath("$.queries[0].request").value("GET /films"));
+    }
+
+    private Map<String, Object> awaitPlan(Predicate<Map<String, Object>> filter) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + PLAN_TIMEOUT_MS;
+        while (true) {
+            Optional<Map<String, Object>> query = slowQueryLog.getQueries().stream()
+                    .filter(filter)
+                    .findFirst();
+            if (query.isPresent() && query.get().get("plan") != null) {
+                return query.get();
+            }
+            assertThat(System.currentTimeMillis()).as("план медленного запроса не построен").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.user.SortedLongArrays;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SortedLongArraysTest {
+
+    @Test
+    public void addAndRemoveKeepArraySorted() {
+        long[] array = SortedLongArrays.of(List.of(5L, 1L, 3L, 1L));
+        assertThat(array).containsExactly(1L, 3L, 5L);
+
+        array = SortedLongArrays.add(array, 4L);
+        assertThat(array).containsExactly(1L, 3L, 4L, 5L);
+        assertThat(SortedLongArrays.add(array, 4L)).isSameAs(array);
+
+        array = SortedLongArrays.remove(array, 1L);
+        assertThat(array).containsExactly(3L, 4L, 5L);
+        assertThat(SortedLongArrays.remove(array, 2L)).isSameAs(array);
+        assertThat(SortedLongArrays.contains(array, 5L)).isTrue();
+        assertThat(SortedLongArrays.contains(array, 1L)).isFalse();
+    }
+
+    @Test
+    public void intersectMergesArraysOfCloseLength() {
+        long[] first = {1, 2, 4, 6, 8};
+        long[] second = {2, 3, 4, 8, 9};
+
+        assertThat(SortedLongArrays.intersect(first, second)).containsExactly(2L, 4L, 8L);
+        assertThat(SortedLongArrays.intersect(first, SortedLongArrays.EMPTY)).isEmpty();
+    }
+
+    @Test
+    public void intersectGallopsThroughLongArray() {
+        long[] large = new long[1_000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = i * 2;
+        }
+        long[] small = {0, 3, 500, 1_001, 1_998, 5_000};
+
+        assertThat(SortedLongArrays.intersect(small, large)).containsExactly(0L, 500L, 1_998L);
+        assertThat(SortedLongArrays.intersect(large, small)).containsExactly(0L, 500L, 1_998L);
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Бюджет SQL-запросов на один HTTP-запрос теста. Тест падает, если хотя бы один запрос,
+ * выполненный в теле теста и подходящий под шаблон, выполнил больше SQL-запросов, чем разрешено,
+ * или если ни один запрос под шаблон не подошел. Запросы из методов @BeforeEach и @AfterEach не учитываются
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(SqlStatementBudgetExtension.class)
+public @interface SqlStatementBudget {
+    /**
+     * Наибольшее количество SQL-запросов одного HTTP-запроса
+     */
+    int value();
+
+    /**
+     * Регулярное выражение для строки "МЕТОД URI" проверяемых HTTP-запросов
+     */
+    String requests() default ".*";
+}
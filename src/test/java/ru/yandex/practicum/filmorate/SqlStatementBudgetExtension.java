@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import ru.yandex.practicum.filmorate.metrics.SqlStatementMetrics;
+import ru.yandex.practicum.filmorate.metrics.SqlStatementMetrics.RequestStatements;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Расширение JUnit, проверяющее {@link SqlStatementBudget}: на время теста подписывается
+ * на итоги HTTP-запросов в {@link SqlStatementMetrics} и после теста сравнивает их с бюджетом
+ */
+public class SqlStatementBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(SqlStatementBudgetExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        SqlStatementBudget budget = findBudget(context);
+        Pattern requests = Pattern.compile(budget.requests());
+        Recorder recorder = new Recorder(budget.value(), requests);
+        SqlStatementMetrics metrics = SpringExtension.getApplicationContext(context).getBean(SqlStatementMetrics.class);
+        metrics.addListener(recorder);
+        context.getStore(NAMESPACE).put(Recorder.class, recorder);
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        Recorder recorder = context.getStore(NAMESPACE).remove(Recorder.class, Recorder.class);
+        SpringExtension.getApplicationContext(context).getBean(SqlStatementMetrics.class).removeListener(recorder);
+        SqlStatementBudget budget = findBudget(context);
+        if (recorder.matched == 0) {
+            throw new AssertionError("Ни один HTTP-запрос теста не подошел под шаблон " + budget.requests());
+        }
+        if (!recorder.exceeded.isEmpty()) {
+            throw new AssertionError("Превышен бюджет в " + budget.value() + " SQL-запросов: " + recorder.exceeded);
+        }
+    }
+
+    private SqlStatementBudget findBudget(ExtensionContext context) {
+        return AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), SqlStatementBudget.class)
+                .or(() -> AnnotationSupport.findAnnotation(context.getRequiredTestClass(), SqlStatementBudget.class))
+                .orElseThrow();
+    }
+
+    /**
+     * Класс получателя итогов HTTP-запросов теста
+     */
+    private static final class Recorder implements Consumer<RequestStatements> {
+        private final int budget;
+        private final Pattern requests;
+        private final List<RequestStatements> exceeded = new ArrayList<>();
+        private int matched;
+
+        private Recorder(int budget, Pattern requests) {
+            this.budget = budget;
+            this.requests = requests;
+        }
+
+        @Override
+        public synchronized void accept(RequestStatements statements) {
+            if (!requests.matcher(statements.getMethod() + " " + statements.getUri()).matches()) {
+                return;
+            }
+            matched++;
+            if (statements.getStatements() > budget) {
+                exceeded.add(statements);
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.metrics.SqlStatementMetrics;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проверка количества SQL-запросов на HTTP-запрос: бюджеты не зависят от количества фильмов,
+ * пользователей, лайков и друзей, поэтому загрузка связанных данных по одному объекту (N+1) их превысит
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class SqlStatementBudgetTest {
+    private static final int SIZE = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    private final List<Long> filmIds = new ArrayList<>();
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    public void beforeEach() {
+        Mpa mpa = new Mpa();
+        mpa.setId(1L);
+        for (int i = 0; i < SIZE; i++) {
+            User user = userService.createUser(new User("user" + i + "@mail.ru", "user" + i, "user" + i,
+                    LocalDate.of(1990, 1, 1).plusDays(i)));
+            userIds.add(user.getId());
+            Film film = new Film("film" + i, "description", LocalDate.of(2000, 1, 1).plusDays(i), 100, mpa);
+            film.setGenres(Set.of(new Genre(1L + i % 6, null)));
+            filmIds.add(filmService.createFilm(film).getId());
+        }
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j <= i; j++) {
+                filmService.addLikeToFilm(filmIds.get(j), userIds.get(i));
+            }
+            if (i > 1) {
+                userService.addToFriends(userIds.get(0), userIds.get(i));
+                userService.addToFriends(userIds.get(1), userIds.get(i));
+                userService.addToFriends(userIds.get(i), userIds.get(i - 1));
+            }
+        }
+    }
+
+    @AfterEach
+    public void afterEach() {
+        filmService.deleteAllFilms();
+        userService.deleteAllUsers();
+        filmIds.clear();
+        userIds.clear();
+    }
+
+    @Test
+    @SqlStatementBudget(3)
+    public void filmsPageLoadsGenresAndLikesInBatches() throws Exception {
+        mockMvc.perform(get("/films"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(SIZE)));
+    }
+
+    @Test
+    @SqlStatementBudget(3)
+    public void popularFilmsLoadGenresAndLikesInBatches() throws Exception {
+        mockMvc.perform(get("/films/popular?count=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(10)));
+    }
+
+    @Test
+    @SqlStatementBudget(4)
+    public void filmByIdLoadsOneFilm() throws Exception {
+        mockMvc.perform(get("/films/" + filmIds.get(0)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likes", hasSize(SIZE)));
+    }
+
+    @Test
+    @SqlStatementBudget(2)
+    public void usersPageLoadsFriendsInOneBatch() throws Exception {
+        mockMvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(SIZE)));
+    }
+
+    @Test
+    @SqlStatementBudget(4)
+    public void friendsLoadTheirFriendsInOneBatch() throws Exception {
+        mockMvc.perform(get("/users/" + userIds.get(0) + "/friends"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(SIZE - 2)));
+    }
+
+    @Test
+    @SqlStatementBudget(6)
+    public void commonFriendsLoadTheirFriendsInOneBatch() throws Exception {
+        mockMvc.perform(get("/users/" + userIds.get(0) + "/friends/common/" + userIds.get(1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(SIZE - 2)));
+    }
+
+    @Test
+    @SqlStatementBudget(2)
+    public void friendRequestReadsStateOnceAndWritesOnce() throws Exception {
+        mockMvc.perform(put("/users/" + userIds.get(2) + "/friends/" + userIds.get(SIZE - 1)))
+                .andExpect(status().isOk());
+
+        assertThat(userService.getFriendsByUser(userIds.get(2))).hasSize(2);
+    }
+
+    @Test
+    @SqlStatementBudget(2)
+    public void friendConfirmationReadsStateOnceAndWritesOnce() throws Exception {
+        mockMvc.perform(put("/users/" + userIds.get(5) + "/friends/" + userIds.get(0)))
+                .andExpect(status().isOk());
+
+        assertThat(userService.getFriendsByUser(userIds.get(5))).hasSize(2);
+    }
+
+    @Test
+    @SqlStatementBudget(2)
+    public void friendRemovalReadsStateOnceAndWritesOnce() throws Exception {
+        mockMvc.perform(delete("/users/" + userIds.get(0) + "/friends/" + userIds.get(5)))
+                .andExpect(status().isOk());
+
+        assertThat(userService.getFriendsByUser(userIds.get(0))).hasSize(SIZE - 3);
+    }
+
+    @Test
+    @SqlStatementBudget(value = 3, requests = "GET /films")
+    public void responseReportsStatementsOfRequest() throws Exception {
+        mockMvc.perform(get("/films"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SqlStatementMetrics.STATEMENTS_HEADER, "3"))
+                .andExpect(header().exists(SqlStatementMetrics.TIME_HEADER));
+
+        mockMvc.perform(get("/metrics/sql"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requests").value(greaterThan(0)))
+                .andExpect(jsonPath("$.statements").value(greaterThan(0)));
+    }
+}
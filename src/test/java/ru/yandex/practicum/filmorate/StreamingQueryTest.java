@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверка потоковой выгрузки фильмов из H2: строки выдаются до того, как построен весь результат.
+ * Названия жанров читаются через представление, которое считает вычисленные строки,
+ * поэтому счетчик в момент получения первого фильма показывает, сколько фильмов H2 уже вычислила
+ */
+public class StreamingQueryTest {
+    private static final int FILMS = 200;
+    private static final AtomicInteger COMPUTED_ROWS = new AtomicInteger();
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Метод, который H2 вызывает при вычислении строки представления жанров
+     */
+    public static String tracked(String name) {
+        COMPUTED_ROWS.incrementAndGet();
+        return name;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        COMPUTED_ROWS.set(0);
+        // Одно соединение: после выгрузки проверяется, что ленивое выполнение на нем выключено
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:streaming-" + UUID.randomUUID(),
+                "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE ALIAS TRACKED FOR 'ru.yandex.practicum.filmorate.StreamingQueryTest.tracked'");
+        jdbcTemplate.execute("CREATE TABLE ratings (rating_id BIGINT PRIMARY KEY, name VARCHAR(10), " +
+                "description VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE films (film_id BIGINT PRIMARY KEY, name VARCHAR(255), " +
+                "description VARCHAR(200), release_date DATE, duration INT, rating_id BIGINT NOT NULL, " +
+                "likes_count BIGINT DEFAULT 0)");
+        jdbcTemplate.execute("CREATE INDEX idx_films_rating_id ON films (rating_id)");
+        jdbcTemplate.execute("CREATE TABLE genre_rows (genre_id BIGINT PRIMARY KEY, name VARCHAR(50))");
+        jdbcTemplate.execute("CREATE VIEW genres AS SELECT genre_id, TRACKED(name) name FROM genre_rows");
+        jdbcTemplate.execute("CREATE TABLE films_genres (film_id BIGINT, genre_id BIGINT, " +
+                "PRIMARY KEY (film_id, genre_id))");
+        jdbcTemplate.execute("CREATE TABLE films_likes (film_id BIGINT, user_id BIGINT, " +
+                "PRIMARY KEY (film_id, user_id))");
+
+        jdbcTemplate.update("INSERT INTO ratings VALUES (1, 'G', 'Нет возрастных ограничений')");
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, rating_id) " +
+                "SELECT X, 'Фильм ' || X, 'Описание', DATE '2000-01-01', 100, 1 FROM SYSTEM_RANGE(1, ?)", FILMS);
+        // У каждого фильма свой жанр, поэтому название жанра вычисляется отдельно для каждого фильма
+        jdbcTemplate.update("INSERT INTO genre_rows SELECT X, 'Жанр ' || X FROM SYSTEM_RANGE(1, ?)", FILMS);
+        jdbcTemplate.update("INSERT INTO films_genres SELECT X, X FROM SYSTEM_RANGE(1, ?)", FILMS);
+        jdbcTemplate.update("INSERT INTO films_likes SELECT X, 1 FROM SYSTEM_RANGE(1, ?)", FILMS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+        dataSource.destroy();
+    }
+
+    @Test
+    public void filmsAreStreamedBeforeWholeResultIsBuilt() {
+        FilmDbStorage storage = new FilmDbStorage(jdbcTemplate);
+        List<Integer> computedAtFilm = new ArrayList<>();
+        List<Film> films = new ArrayList<>();
+
+        storage.streamFilms(film -> {
+            computedAtFilm.add(COMPUTED_ROWS.get());
+            films.add(film);
+        });
+
+        assertThat(films).hasSize(FILMS);
+        assertThat(films.get(FILMS - 1).getGenres().iterator().next().getName()).isEqualTo("Жанр " + FILMS);
+        assertThat(films.get(FILMS - 1).getLikes()).containsExactly(1L);
+        assertThat(films.get(FILMS - 1).getMpa().getName()).isEqualTo("G");
+        // Первый фильм получен, когда остальные еще не вычислены
+        assertThat(computedAtFilm.get(0)).isLessThan(FILMS / 2);
+        assertThat(computedAtFilm.get(FILMS - 1)).isGreaterThanOrEqualTo(FILMS);
+    }
+
+    @Test
+    public void lazyExecutionIsTurnedOffAfterStreamingFails() {
+        FilmDbStorage storage = new FilmDbStorage(jdbcTemplate);
+
+        assertThrows(IllegalStateException.class, () -> storage.streamFilms(film -> {
+            throw new IllegalStateException("Клиент отключился");
+        }));
+
+        COMPUTED_ROWS.set(0);
+        List<Integer> computedAtRow = new ArrayList<>();
+        jdbcTemplate.query("SELECT f.film_id, (SELECT g.name FROM films_genres AS fg " +
+                        "JOIN genres AS g ON g.genre_id = fg.genre_id WHERE fg.film_id = f.film_id) genre_name " +
+                        "FROM films AS f ORDER BY f.film_id",
+                (RowCallbackHandler) rs -> computedAtRow.add(COMPUTED_ROWS.get()));
+        // Обычный запрос на том же соединении снова строит весь результат до первой строки
+        assertThat(computedAtRow).hasSize(FILMS);
+        assertThat(computedAtRow.get(0)).isGreaterThanOrEqualTo(FILMS);
+    }
+}
@@ -18,6 +18,8 @@ import ru.yandex.practicum.filmorate.model.User;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -919,6 +921,83 @@ public class UserControllerTest {
 
     }
 
+    @Test
+    public void createUsersBulkFromJsonArray() throws Exception {
+        User duplicateEmail = new User("mail@mail.ru", "otherLogin", "name",
+                LocalDate.of(1994, 1, 18));
+        User withoutName = new User("other@mail.ru", "otherLogin", "",
+                LocalDate.of(1994, 1, 18));
+        var requestBuilder = post("/users/bulk")
+                .content(objectMapper.writeValueAsString(List.of(userWithoutId, duplicateEmail, withoutName)))
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding(StandardCharsets.UTF_8);
+
+        MvcResult mvcResult = mockMvc.perform(requestBuilder)
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String[] results = mvcResult.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertThat(results.length).isEqualTo(3);
+        assertThat(results[0]).isEqualToIgnoringWhitespace(
+                "{\"row\":2,\"error\":\"Пользователь с email mail@mail.ru уже есть в загрузке\"}");
+        assertThat(results[1]).startsWith("{\"row\":1,\"id\":");
+        assertThat(results[2]).startsWith("{\"row\":3,\"id\":");
+
+        mockMvc.perform(get("/users").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].name").value("otherLogin"));
+    }
+
+    @Test
+    public void createUsersBulkRejectsOnlyRowsTakenByExistingUsers() throws Exception {
+        createUser();
+        User sameLogin = new User("new@mail.ru", "login", "name", LocalDate.of(1994, 1, 18));
+        User fresh = new User("fresh@mail.ru", "freshLogin", "fresh", LocalDate.of(1994, 1, 18));
+        User sameEmail = new User("mail@mail.ru", "newLogin", "name", LocalDate.of(1994, 1, 18));
+        var requestBuilder = post("/users/bulk")
+                .content(objectMapper.writeValueAsString(List.of(sameLogin, fresh, sameEmail)))
+                .contentType(MediaType.APPLICATION_JSON)
+                .characterEncoding(StandardCharsets.UTF_8);
+
+        MvcResult mvcResult = mockMvc.perform(requestBuilder)
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String[] results = mvcResult.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertThat(results.length).isEqualTo(3);
+        assertThat(results[0]).isEqualToIgnoringWhitespace(
+                "{\"row\":1,\"error\":\"Пользователь с логином login уже существует\"}");
+        assertThat(results[1]).isEqualToIgnoringWhitespace(
+                "{\"row\":3,\"error\":\"Пользователь с email mail@mail.ru уже существует\"}");
+        assertThat(results[2]).startsWith("{\"row\":2,\"id\":");
+    }
+
+    @Test
+    public void getUsersByPagesAndAsStream() throws Exception {
+        User friend = new User("friend@mail.ru", "friendLogin", "friend",
+                LocalDate.of(1994, 1, 18));
+        createUser();
+        mockMvc.perform(post("/users")
+                .content(objectMapper.writeValueAsString(friend))
+                .contentType(MediaType.APPLICATION_JSON));
+        mockMvc.perform(put("/users/1/friends/2"));
+
+        mockMvc.perform(get("/users?after=1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].login").value("friendLogin"));
+
+        MvcResult mvcResult = mockMvc.perform(get("/users/stream"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn();
+        String[] users = mvcResult.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertThat(users.length).isEqualTo(2);
+        userWithId.setFriends(Set.of(2L));
+        assertThat(users[0]).isEqualToIgnoringWhitespace(objectMapper.writeValueAsString(userWithId));
+    }
+
     private void getListUsersMustBeEmpty() throws Exception {
         var checkListUsersRequest = get("/users")
                 .contentType(MediaType.APPLICATION_JSON)